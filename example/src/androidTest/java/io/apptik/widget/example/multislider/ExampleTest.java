@@ -13,14 +13,20 @@ import androidx.test.rule.ActivityTestRule;
 import androidx.test.uiautomator.UiCollection;
 import androidx.test.uiautomator.UiDevice;
 import androidx.test.uiautomator.UiSelector;
+import io.apptik.widget.ActionReport;
 import io.apptik.widget.MultiSlider;
 import io.apptik.widget.UiMultiSlider;
 
 import static androidx.test.espresso.Espresso.onView;
 import static androidx.test.espresso.action.ViewActions.click;
+import static io.apptik.widget.MultiSliderActions.dragThumbs;
 import static io.apptik.widget.MultiSliderActions.moveThumbBackward;
 import static io.apptik.widget.MultiSliderActions.moveThumbForward;
 import static io.apptik.widget.MultiSliderActions.setThumbValue;
+import static io.apptik.widget.MultiSliderActions.setThumbValues;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(AndroidJUnit4.class)
 @SdkSuppress(minSdkVersion = 18)
@@ -66,4 +72,23 @@ public class ExampleTest {
         onView(ViewMatchers.withId(R.id.multiSlider3))
                 .perform(click());
     }
+
+    @Test
+    public void dragSmoke() {
+        onView(ViewMatchers.withId(R.id.multiSlider3))
+                .perform(setThumbValues(new int[]{0}, null));
+        ActionReport report = new ActionReport();
+        onView(ViewMatchers.withId(R.id.multiSlider3))
+                .perform(dragThumbs(new int[]{0}, new float[]{300}, 500, 120, report));
+
+        //down, 60 moves and up
+        assertEquals(62, report.getEventCount());
+        assertTrue(report.toString(), report.getValueChangeCount() > 0);
+        assertTrue(report.toString(), report.getFinalValues()[0] > 0);
+
+        onView(ViewMatchers.withId(R.id.multiSlider3))
+                .perform(setThumbValues(new int[]{0}, report));
+        assertArrayEquals(new int[]{0}, report.getFinalValues());
+        assertEquals(1, report.getValuesChangeCount());
+    }
 }
@@ -0,0 +1,82 @@
+package io.apptik.widget.example.multislider;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+import android.widget.TextView;
+
+import java.util.Locale;
+
+/**
+ * Shows the frame times measured with {@link Choreographer} callbacks in a {@link TextView}.
+ * <p/>
+ * The text is updated twice a second with the frame rate, the average and longest frame time
+ * and the number of frames that took longer than one and a half frame interval.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class FrameTimeOverlay implements Choreographer.FrameCallback {
+
+    private static final long WINDOW_NANOS = 500000000L;
+    //nominal frame time at 60fps
+    private static final long FRAME_NANOS = 16666667L;
+
+    private final TextView view;
+    private boolean running = false;
+    private long lastFrame;
+    private long windowStart;
+    private int frames;
+    private long maxFrame;
+    private int janks;
+    //shown after the frame times, e.g. slider metrics, its text is taken on each update
+    private Object extra;
+
+    FrameTimeOverlay(TextView view) {
+        this.view = view;
+    }
+
+    void start() {
+        if (running) return;
+        running = true;
+        lastFrame = 0;
+        frames = 0;
+        maxFrame = 0;
+        janks = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    void stop() {
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    void setExtra(Object extra) {
+        this.extra = extra;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+        if (lastFrame == 0) {
+            windowStart = frameTimeNanos;
+        } else {
+            long frame = frameTimeNanos - lastFrame;
+            frames++;
+            maxFrame = Math.max(maxFrame, frame);
+            if (frame > FRAME_NANOS * 3 / 2) {
+                janks++;
+            }
+        }
+        lastFrame = frameTimeNanos;
+        long window = frameTimeNanos - windowStart;
+        if (window >= WINDOW_NANOS && frames > 0) {
+            String text = String.format(Locale.US, "%.1f fps  avg %.1f ms  max %.1f ms  jank %d",
+                    frames * 1e9 / window, window / 1e6 / frames, maxFrame / 1e6, janks);
+            view.setText(extra == null ? text : text + "\n" + extra);
+            windowStart = frameTimeNanos;
+            frames = 0;
+            maxFrame = 0;
+            janks = 0;
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -20,18 +20,28 @@ package io.apptik.widget.example.multislider;
 import android.app.Fragment;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 
+import io.apptik.widget.GestureTrace;
 import io.apptik.widget.MultiSlider;
 
 
 public class MultiSliderFragmentMany extends Fragment {
 
+    private static final String TAG = "MultiSliderFragmentMany";
+
+    //debug builds record the gestures, the traces can be replayed in tests
+    private GestureTrace.Recorder recorder;
 
     public MultiSliderFragmentMany() {
         // Required empty public constructor
@@ -50,6 +60,10 @@ public class MultiSliderFragmentMany extends Fragment {
         vals.add((TextView) v.findViewById(R.id.value7));
 
         MultiSlider multiSlider = (MultiSlider)v.findViewById(R.id.multiSlider);
+        if (BuildConfig.DEBUG) {
+            recorder = new GestureTrace.Recorder();
+            multiSlider.setGestureRecorder(recorder);
+        }
 
         for(int i=0;i<7;i++) {
             vals.get(i).setText(String.valueOf(multiSlider.getThumb(i).getValue()));
@@ -73,4 +87,34 @@ public class MultiSliderFragmentMany extends Fragment {
 
         return v;
     }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (recorder != null && recorder.getEventCount() > 0) {
+            saveTrace(recorder.finish());
+        }
+        recorder = null;
+    }
+
+    private void saveTrace(GestureTrace trace) {
+        File dir = getActivity().getExternalFilesDir("traces");
+        if (dir == null) return;
+        File file = new File(dir, "many-" + System.currentTimeMillis() + ".trace");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            trace.writeTo(out);
+            Log.i(TAG, "Saved " + trace.getEventCount() + " touch events to " + file);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot save the touch events", e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2014 Kalin Maldzhanski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apptik.widget.example.multislider;
+
+
+import android.app.Fragment;
+import android.os.Build;
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import io.apptik.widget.MultiSlider;
+
+/**
+ * Stress test screen: a slider with thousands of thumbs above a list of hundreds of sliders.
+ * <p/>
+ * The check boxes switch the slider metrics, the system trace sections, conflation of the
+ * value listener, a background feed which moves all the thumbs 60 times a second and the drag
+ * modes of the big slider: motion prediction, precision drag, fling and range drag. The buttons
+ * cycle the number of thumbs and the accessibility event interval. The frame times, and the
+ * metrics of the big slider when enabled, are shown on top.
+ */
+public class MultiSliderFragmentStress extends Fragment {
+
+    private static final int[] THUMB_COUNTS = {100, 1000, 5000};
+    private static final int SCALE_MAX = 100000;
+    private static final int ROW_COUNT = 500;
+    private static final int ROW_SCALE_MAX = 100;
+    private static final int FEED_RATE = 60;
+    //value listener interval with conflation on
+    private static final long CONFLATE_INTERVAL = 100;
+    //prediction horizon in ms with prediction on, about a frame
+    private static final long PREDICTION_HORIZON = 16;
+    private static final long[] A11Y_INTERVALS = {0, 200, 1000};
+
+    private MultiSlider multiSlider;
+    private TextView valueText;
+    private Button thumbsButton;
+    private int thumbCountIndex = 1;
+    private Button a11yButton;
+    private int a11yIntervalIndex = 1;
+    private final List<SliderRowAdapter.Row> rows = new ArrayList<SliderRowAdapter.Row>();
+    private SliderRowAdapter adapter;
+    private FrameTimeOverlay overlay;
+    private ValueFeed feed;
+    private boolean feedEnabled = false;
+
+    private final MultiSlider.OnThumbValueChangeListener valueListener =
+            new MultiSlider.SimpleChangeListener() {
+                @Override
+                public void onValueChanged(MultiSlider multiSlider, MultiSlider.Thumb thumb,
+                                           int thumbIndex, int value) {
+                    valueText.setText(thumbIndex + ": " + value);
+                }
+            };
+
+    public MultiSliderFragmentStress() {
+        // Required empty public constructor
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle
+            savedInstanceState) {
+        View v = inflater.inflate(R.layout.fragment_multi_slider_stress, container, false);
+        multiSlider = (MultiSlider) v.findViewById(R.id.multiSlider);
+        valueText = (TextView) v.findViewById(R.id.value);
+        thumbsButton = (Button) v.findViewById(R.id.thumbs);
+        multiSlider.setOnThumbValueChangeListener(valueListener);
+        setThumbCount(THUMB_COUNTS[thumbCountIndex]);
+        thumbsButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                thumbCountIndex = (thumbCountIndex + 1) % THUMB_COUNTS.length;
+                setThumbCount(THUMB_COUNTS[thumbCountIndex]);
+            }
+        });
+
+        rows.clear();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            rows.add(new SliderRowAdapter.Row(1 + i % 4, ROW_SCALE_MAX));
+        }
+        adapter = new SliderRowAdapter(rows);
+        RecyclerView list = (RecyclerView) v.findViewById(R.id.list);
+        list.setLayoutManager(new LinearLayoutManager(getActivity()));
+        list.setAdapter(adapter);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            overlay = new FrameTimeOverlay((TextView) v.findViewById(R.id.frameStats));
+        }
+        feed = new ValueFeed(new ValueFeed.Listener() {
+            @Override
+            public void onValues(int[] values) {
+                applyFeed(values);
+            }
+        });
+
+        CheckBox metrics = (CheckBox) v.findViewById(R.id.metrics);
+        metrics.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                multiSlider.setMetricsEnabled(isChecked);
+                if (overlay != null) {
+                    overlay.setExtra(multiSlider.getMetrics());
+                }
+            }
+        });
+        CheckBox tracing = (CheckBox) v.findViewById(R.id.tracing);
+        tracing.setChecked(MultiSlider.isTracingEnabled());
+        tracing.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                MultiSlider.setTracingEnabled(isChecked);
+            }
+        });
+        CheckBox conflate = (CheckBox) v.findViewById(R.id.conflate);
+        conflate.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                multiSlider.setOnThumbValueChangeListener(valueListener,
+                        isChecked ? CONFLATE_INTERVAL : 0);
+            }
+        });
+        CheckBox prediction = (CheckBox) v.findViewById(R.id.prediction);
+        prediction.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                multiSlider.setPredictionHorizon(isChecked ? PREDICTION_HORIZON : 0);
+            }
+        });
+        CheckBox precision = (CheckBox) v.findViewById(R.id.precision);
+        precision.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                multiSlider.setPrecisionDragEnabled(isChecked);
+            }
+        });
+        CheckBox fling = (CheckBox) v.findViewById(R.id.fling);
+        fling.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                multiSlider.setFlingEnabled(isChecked);
+            }
+        });
+        CheckBox rangeDrag = (CheckBox) v.findViewById(R.id.rangeDrag);
+        rangeDrag.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                multiSlider.setRangeDragEnabled(isChecked);
+            }
+        });
+        a11yButton = (Button) v.findViewById(R.id.a11yInterval);
+        setA11yInterval(A11Y_INTERVALS[a11yIntervalIndex]);
+        a11yButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                a11yIntervalIndex = (a11yIntervalIndex + 1) % A11Y_INTERVALS.length;
+                setA11yInterval(A11Y_INTERVALS[a11yIntervalIndex]);
+            }
+        });
+        CheckBox feedBox = (CheckBox) v.findViewById(R.id.feed);
+        feedBox.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                feedEnabled = isChecked;
+                if (isChecked) {
+                    feed.start(FEED_RATE);
+                } else {
+                    feed.stop();
+                }
+            }
+        });
+
+        return v;
+    }
+
+    private void setThumbCount(int count) {
+        thumbsButton.setText(getString(R.string.stress_thumbs, count));
+        multiSlider.bind(new SliderRowAdapter.Row(count, SCALE_MAX));
+        if (feed != null) {
+            feed.setShape(count, SCALE_MAX);
+        }
+    }
+
+    private void setA11yInterval(long interval) {
+        a11yButton.setText(getString(R.string.stress_a11y_interval, interval));
+        multiSlider.setAccessibilityEventInterval(interval);
+    }
+
+    private void applyFeed(int[] values) {
+        if (values.length == multiSlider.getThumbCount()) {
+            multiSlider.setThumbValues(values);
+        }
+        //the rows follow the same wave, only the bound rows are rebound
+        final long tick = feed.getTick();
+        for (int r = 0; r < rows.size(); r++) {
+            SliderRowAdapter.Row row = rows.get(r);
+            int slot = ROW_SCALE_MAX / row.values.length;
+            for (int i = 0; i < row.values.length; i++) {
+                double swing = Math.sin(tick * 0.05 + r * 0.2 + i) * slot * 0.45;
+                row.values[i] = (int) ((i + 0.5) * slot + swing);
+            }
+        }
+        adapter.notifyItemRangeChanged(0, rows.size(), SliderRowAdapter.PAYLOAD_VALUES);
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        feed.setShape(multiSlider.getThumbCount(), SCALE_MAX);
+        if (feedEnabled) {
+            feed.start(FEED_RATE);
+        }
+        if (overlay != null) {
+            overlay.start();
+        }
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        feed.stop();
+        if (overlay != null) {
+            overlay.stop();
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        feed.shutdown();
+    }
+}
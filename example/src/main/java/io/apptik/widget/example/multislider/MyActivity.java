@@ -13,6 +13,8 @@ import android.view.ViewGroup;
 
 import androidx.drawerlayout.widget.DrawerLayout;
 
+import io.apptik.widget.MultiSlider;
+
 public class MyActivity extends Activity
         implements NavigationDrawerFragment.NavigationDrawerCallbacks {
 
@@ -29,6 +31,8 @@ public class MyActivity extends Activity
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        //slider phases show up in systrace for debug builds
+        MultiSlider.setTracingEnabled(BuildConfig.DEBUG);
         setContentView(R.layout.activity_my);
 
         mNavigationDrawerFragment = (NavigationDrawerFragment)
@@ -61,6 +65,9 @@ public class MyActivity extends Activity
             case 3:
                 mTitle = getString(R.string.title_section3);
                 break;
+            case 4:
+                mTitle = getString(R.string.title_section4);
+                break;
         }
     }
 
@@ -132,6 +139,7 @@ public class MyActivity extends Activity
                 case 1:getFragmentManager().beginTransaction().add(R.id.inner_container, new MultiSliderFragmentSingle()).commit(); break;
                 case 2:getFragmentManager().beginTransaction().add(R.id.inner_container, new MultiSliderFragmentRange()).commit(); break;
                 case 3:getFragmentManager().beginTransaction().add(R.id.inner_container, new MultiSliderFragmentMany()).commit(); break;
+                case 4:getFragmentManager().beginTransaction().add(R.id.inner_container, new MultiSliderFragmentStress()).commit(); break;
 
             }
         }
@@ -0,0 +1,133 @@
+package io.apptik.widget.example.multislider;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.List;
+
+import androidx.recyclerview.widget.RecyclerView;
+import io.apptik.widget.MultiSlider;
+
+/**
+ * List of sliders, each row binds its own {@link Row} model with {@link MultiSlider#bind}, so
+ * recycled sliders keep their thumbs and drawables. Values dragged by the user are written back
+ * to the model.
+ */
+class SliderRowAdapter extends RecyclerView.Adapter<SliderRowAdapter.Holder> {
+
+    //payload for rebinding only the values of a row
+    static final Object PAYLOAD_VALUES = new Object();
+
+    static final class Row implements MultiSlider.Model {
+        final int scaleMax;
+        final int[] values;
+
+        Row(int thumbs, int scaleMax) {
+            this.scaleMax = scaleMax;
+            this.values = new int[thumbs];
+            for (int i = 0; i < thumbs; i++) {
+                values[i] = (i + 1) * scaleMax / (thumbs + 1);
+            }
+        }
+
+        @Override
+        public int getThumbCount() {
+            return values.length;
+        }
+
+        @Override
+        public int getScaleMin() {
+            return 0;
+        }
+
+        @Override
+        public int getScaleMax() {
+            return scaleMax;
+        }
+
+        @Override
+        public int getThumbValue(int thumbIndex) {
+            return values[thumbIndex];
+        }
+
+        @Override
+        public int getThumbMin(int thumbIndex) {
+            return 0;
+        }
+
+        @Override
+        public int getThumbMax(int thumbIndex) {
+            return scaleMax;
+        }
+    }
+
+    static final class Holder extends RecyclerView.ViewHolder implements
+            MultiSlider.OnThumbValueChangeListener {
+        final TextView label;
+        final MultiSlider slider;
+        Row row;
+
+        Holder(View itemView) {
+            super(itemView);
+            label = (TextView) itemView.findViewById(R.id.label);
+            slider = (MultiSlider) itemView.findViewById(R.id.multiSlider);
+            slider.setOnThumbValueChangeListener(this);
+        }
+
+        @Override
+        public void onValueChanged(MultiSlider multiSlider, MultiSlider.Thumb thumb,
+                                   int thumbIndex, int value) {
+            if (row != null && thumbIndex < row.values.length) {
+                row.values[thumbIndex] = value;
+            }
+        }
+    }
+
+    private final List<Row> rows;
+
+    SliderRowAdapter(List<Row> rows) {
+        this.rows = rows;
+    }
+
+    @Override
+    public Holder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return new Holder(LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_slider_row, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(Holder holder, int position) {
+        holder.label.setText(String.valueOf(position));
+        bindValues(holder, position);
+    }
+
+    @Override
+    public void onBindViewHolder(Holder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            bindValues(holder, position);
+        }
+    }
+
+    private void bindValues(Holder holder, int position) {
+        //clear the row first, bind() reports the changed values
+        holder.row = null;
+        Row row = rows.get(position);
+        holder.slider.bind(row);
+        holder.row = row;
+    }
+
+    @Override
+    public void onViewRecycled(Holder holder) {
+        holder.row = null;
+        holder.slider.unbind();
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.size();
+    }
+}
@@ -0,0 +1,119 @@
+package io.apptik.widget.example.multislider;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generates thumb values on a background thread at a fixed rate and delivers them on the main
+ * thread, like values coming from a sensor or the network would.
+ * <p/>
+ * Only the latest values are delivered: if the main thread is late, values generated
+ * meanwhile replace each other instead of queueing up.
+ */
+class ValueFeed {
+
+    interface Listener {
+        /**
+         * Called on the main thread with the latest values.
+         *
+         * @param values the thumb values in ascending order, owned by the listener
+         */
+        void onValues(int[] values);
+    }
+
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicReference<int[]> pending = new AtomicReference<>();
+    private final AtomicBoolean posted = new AtomicBoolean();
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> task;
+    private volatile long tick;
+    private volatile int thumbCount;
+    private volatile int scaleMax;
+
+    private final Runnable deliver = new Runnable() {
+        @Override
+        public void run() {
+            posted.set(false);
+            int[] values = pending.getAndSet(null);
+            if (values != null && task != null) {
+                listener.onValues(values);
+            }
+        }
+    };
+
+    private final Runnable generate = new Runnable() {
+        @Override
+        public void run() {
+            final int count = thumbCount;
+            final int max = scaleMax;
+            final long t = ++tick;
+            int[] values = new int[count];
+            //each thumb swings around its own slot so the values stay in ascending order
+            double slot = (double) max / Math.max(1, count);
+            for (int i = 0; i < count; i++) {
+                double swing = Math.sin(t * 0.05 + i * 0.3) * slot * 0.45;
+                values[i] = (int) ((i + 0.5) * slot + swing);
+            }
+            pending.set(values);
+            if (posted.compareAndSet(false, true)) {
+                mainHandler.post(deliver);
+            }
+        }
+    };
+
+    ValueFeed(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the shape of the generated values, takes effect with the next generation
+     */
+    void setShape(int thumbCount, int scaleMax) {
+        this.thumbCount = thumbCount;
+        this.scaleMax = scaleMax;
+    }
+
+    /**
+     * @param rate generations per second
+     */
+    void start(int rate) {
+        if (task != null) return;
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor();
+        }
+        task = executor.scheduleAtFixedRate(generate, 0, 1000000L / rate, TimeUnit.MICROSECONDS);
+    }
+
+    void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        mainHandler.removeCallbacks(deliver);
+        posted.set(false);
+        pending.set(null);
+    }
+
+    void shutdown() {
+        stop();
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * @return number of generations so far, including the ones replaced before delivery
+     */
+    long getTick() {
+        return tick;
+    }
+}
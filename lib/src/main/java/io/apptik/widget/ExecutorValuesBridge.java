@@ -0,0 +1,279 @@
+package io.apptik.widget;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.apptik.widget.Util.requireNonNull;
+
+/**
+ * Forwards thumb values to an expensive consumer running on an {@link Executor} and posts its
+ * results back to the main thread.
+ * <p/>
+ * Only the latest values are processed: values published while the worker is busy replace
+ * each other and only the last ones are picked up, results computed for values that were
+ * already replaced are dropped. The values are handed over through a lock-free triple buffer so
+ * publishing from the UI thread neither blocks nor allocates once the buffers have grown to the
+ * number of thumbs.
+ * <p/>
+ * Register it with {@link MultiSlider#addOnThumbValuesChangeListener}.
+ *
+ * @param <R> the type of the result
+ */
+public class ExecutorValuesBridge<R> implements MultiSlider.OnThumbValuesChangeListener {
+
+    /**
+     * Background part of the work
+     *
+     * @param <R> the type of the result
+     */
+    public interface Worker<R> {
+        /**
+         * Called on the executor with the latest values.
+         *
+         * @param values the thumb values, the array is reused and must not be kept
+         * @param count  the number of thumbs, values after it are to be ignored
+         * @return the result to deliver or null for nothing to deliver
+         */
+        R process(int[] values, int count);
+    }
+
+    /**
+     * Main thread part of the work
+     *
+     * @param <R> the type of the result
+     */
+    public interface ResultListener<R> {
+        /**
+         * Called on the main thread with the latest result.
+         */
+        void onResult(R result);
+    }
+
+    private static final int INDEX_MASK = 3;
+    private static final int DIRTY = 4;
+
+    private final Executor executor;
+    private final Worker<R> worker;
+    private final ResultListener<R> resultListener;
+    private final Executor resultExecutor;
+
+    //triple buffer, the UI thread owns back, the worker owns front, middle is exchanged
+    private final int[][] buffers = new int[3][];
+    private final int[] counts = new int[3];
+    private final long[] generations = new long[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+    private long uiGeneration = 0;
+    private final AtomicLong latestGeneration = new AtomicLong();
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicReference<R> pendingResult = new AtomicReference<>();
+    private final AtomicBoolean resultPosted = new AtomicBoolean();
+    private volatile boolean closed = false;
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedResultCount = new AtomicLong();
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    private final Runnable deliver = new Runnable() {
+        @Override
+        public void run() {
+            resultPosted.set(false);
+            R result = pendingResult.getAndSet(null);
+            if (result != null && !closed) {
+                resultListener.onResult(result);
+            }
+        }
+    };
+
+    /**
+     * @param executor       the executor to run the worker on
+     * @param worker         the background work
+     * @param resultListener receiver of the results on the main thread
+     */
+    public ExecutorValuesBridge(Executor executor, Worker<R> worker,
+                                ResultListener<R> resultListener) {
+        this(executor, new MainThreadExecutor(), worker, resultListener);
+    }
+
+    //package-private for the tests, results are delivered through resultExecutor
+    ExecutorValuesBridge(Executor executor, Executor resultExecutor, Worker<R> worker,
+                         ResultListener<R> resultListener) {
+        this.executor = requireNonNull(executor);
+        this.resultExecutor = requireNonNull(resultExecutor);
+        this.worker = requireNonNull(worker);
+        this.resultListener = requireNonNull(resultListener);
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new int[2];
+        }
+    }
+
+    @Override
+    public void onValuesChanged(MultiSlider multiSlider, MultiSlider.ThumbValues values) {
+        publish(values);
+    }
+
+    /**
+     * Publishes the current values of a slider, e.g. the initial ones before any change
+     */
+    public void publish(MultiSlider multiSlider) {
+        final int count = multiSlider.getThumbCount();
+        int[] buffer = ensureBackBuffer(count);
+        for (int i = 0; i < count; i++) {
+            buffer[i] = multiSlider.getThumb(i).getValue();
+        }
+        publishBack(count);
+    }
+
+    private void publish(MultiSlider.ThumbValues values) {
+        values.copyTo(ensureBackBuffer(values.size()));
+        publishBack(values.size());
+    }
+
+    //package-private for the tests
+    void publish(int[] values, int count) {
+        System.arraycopy(values, 0, ensureBackBuffer(count), 0, count);
+        publishBack(count);
+    }
+
+    private int[] ensureBackBuffer(int count) {
+        if (buffers[back].length < count) {
+            buffers[back] = new int[count];
+        }
+        return buffers[back];
+    }
+
+    private void publishBack(int count) {
+        if (closed) return;
+        counts[back] = count;
+        generations[back] = ++uiGeneration;
+        latestGeneration.set(uiGeneration);
+        int old = middle.getAndSet(back | DIRTY);
+        back = old & INDEX_MASK;
+        publishedCount.incrementAndGet();
+        if ((old & DIRTY) != 0) {
+            //the previous values were never picked up
+            coalescedCount.incrementAndGet();
+        }
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(drain);
+        }
+    }
+
+    private void drain() {
+        while (!closed) {
+            if ((middle.get() & DIRTY) == 0) {
+                drainScheduled.set(false);
+                //values published after the check above but before the flag was cleared
+                if ((middle.get() & DIRTY) == 0 || !drainScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            front = middle.getAndSet(front) & INDEX_MASK;
+            final R result;
+            try {
+                result = worker.process(buffers[front], counts[front]);
+            } catch (RuntimeException | Error e) {
+                //the failure goes to the executor, the bridge keeps draining the next values
+                drainScheduled.set(false);
+                if ((middle.get() & DIRTY) != 0 && !closed
+                        && drainScheduled.compareAndSet(false, true)) {
+                    executor.execute(drain);
+                }
+                throw e;
+            }
+            processedCount.incrementAndGet();
+            if (closed) {
+                //closed while the worker was busy
+                break;
+            }
+            if (generations[front] != latestGeneration.get()) {
+                //newer values arrived meanwhile
+                droppedResultCount.incrementAndGet();
+                continue;
+            }
+            if (result != null && pendingResult.getAndSet(result) != null) {
+                //the previous result was not delivered yet
+                droppedResultCount.incrementAndGet();
+            }
+            if (result != null && resultPosted.compareAndSet(false, true)) {
+                resultExecutor.execute(deliver);
+            }
+        }
+        drainScheduled.set(false);
+    }
+
+    /**
+     * Stops processing and delivering. Values published afterwards are ignored. A worker call
+     * already running is not interrupted, but its result is dropped and no further values are
+     * processed.
+     */
+    public void close() {
+        closed = true;
+        if (resultExecutor instanceof MainThreadExecutor) {
+            ((MainThreadExecutor) resultExecutor).handler.removeCallbacks(deliver);
+        }
+        pendingResult.set(null);
+    }
+
+    /**
+     * @return number of times values were published
+     */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * @return number of times the worker processed values
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * @return number of published values that were replaced before being processed
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return number of results that were not delivered because newer values or results
+     * superseded them
+     */
+    public long getDroppedResultCount() {
+        return droppedResultCount.get();
+    }
+
+    public void resetMetrics() {
+        publishedCount.set(0);
+        processedCount.set(0);
+        coalescedCount.set(0);
+        droppedResultCount.set(0);
+    }
+
+    private static final class MainThreadExecutor implements Executor {
+        final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            handler.post(command);
+        }
+    }
+}
@@ -0,0 +1,649 @@
+package io.apptik.widget;
+
+import android.os.SystemClock;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compact binary trace of the touch events received by a {@link MultiSlider}.
+ * <p/>
+ * A trace is recorded on a device with a {@link Recorder} set by
+ * {@link MultiSlider#setGestureRecorder(Recorder)}, saved with {@link #writeTo(OutputStream)}
+ * and fed into a slider anywhere else, e.g. a JVM test, with {@link #replay(MultiSlider)} which
+ * reports the values after each event and the time it took to handle it.
+ * <p/>
+ * Format, all numbers are unsigned LEB128 varints, the signed ones zigzag encoded:
+ * <pre>
+ * header: magic "MSGT" (4 bytes), version, view width, view height, event count
+ * event:  action (with the pointer index), pointer count, the pointer ids,
+ *         history size, then history size + 1 samples
+ * sample: time in ms since the previous sample, then for each pointer: x delta, y delta
+ * </pre>
+ * The samples of an event are the historical ones of a batched move, oldest first, followed by
+ * the current one, so velocity tracking and prediction see the same input on replay as on
+ * the device. Coordinates are in 1/16 px relative to the previous position of the same pointer
+ * id, so a sample of a single pointer usually takes 3 to 5 bytes.
+ * <p/>
+ * Version 1 traces, which kept only the current samples, can still be read.
+ */
+public final class GestureTrace {
+
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x4D534754;
+    //fixed point scale of the coordinates
+    private static final float SCALE = 16f;
+    //pointer ids are below 32, see MotionEvent
+    private static final int MAX_POINTER_ID = 31;
+
+    private final byte[] data;
+    private final int width;
+    private final int height;
+    private final int eventCount;
+    private final int[] actions;
+    //start of each event in the pointer ids, with one more entry for the end
+    private final int[] pointerStarts;
+    private final int[] pointerIds;
+    //start of each event in the samples, the current sample is the last one of the event
+    private final int[] sampleStarts;
+    //sample times in ms since the first event
+    private final long[] sampleTimes;
+    //start of each event in the coordinates, pointer after pointer for each sample
+    private final int[] coordStarts;
+    private final float[] xs;
+    private final float[] ys;
+
+    private GestureTrace(byte[] data) throws IOException {
+        this.data = data;
+        Input in = new Input(data);
+        if (in.readFixedInt() != MAGIC) {
+            throw new IOException("Not a gesture trace");
+        }
+        int version = in.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported gesture trace version: " + version);
+        }
+        width = in.readInt();
+        height = in.readInt();
+        eventCount = in.readInt();
+        //an event takes at least 3 bytes
+        if (eventCount < 0 || eventCount > data.length / 3) {
+            throw new IOException("Invalid gesture trace event count: " + eventCount);
+        }
+        actions = new int[eventCount];
+        pointerStarts = new int[eventCount + 1];
+        sampleStarts = new int[eventCount + 1];
+        coordStarts = new int[eventCount + 1];
+        int[] ids = new int[eventCount];
+        long[] sampleTime = new long[eventCount];
+        float[] x = new float[eventCount];
+        float[] y = new float[eventCount];
+        int[] lastX = new int[MAX_POINTER_ID + 1];
+        int[] lastY = new int[MAX_POINTER_ID + 1];
+        int pointers = 0;
+        int samples = 0;
+        int coords = 0;
+        long time = 0;
+        for (int i = 0; i < eventCount; i++) {
+            if (version == 1) {
+                time += in.readLong();
+            }
+            actions[i] = in.readInt();
+            int count = in.readInt();
+            if (count < 1 || count > MAX_POINTER_ID + 1) {
+                throw new IOException("Invalid gesture trace pointer count: " + count);
+            }
+            pointerStarts[i] = pointers;
+            if (pointers + count > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(pointers + count, ids.length * 2));
+            }
+            int historySize = 0;
+            //version 1 has the ids with the coordinates and no history
+            if (version > 1) {
+                for (int p = 0; p < count; p++) {
+                    ids[pointers + p] = readPointerId(in);
+                }
+                historySize = in.readInt();
+                //a sample takes at least 3 bytes
+                if (historySize < 0 || historySize > data.length / 3) {
+                    throw new IOException("Invalid gesture trace history size: " + historySize);
+                }
+            }
+            sampleStarts[i] = samples;
+            coordStarts[i] = coords;
+            final int eventSamples = historySize + 1;
+            if (samples + eventSamples > sampleTime.length) {
+                sampleTime = Arrays.copyOf(sampleTime, Math.max(samples + eventSamples,
+                        sampleTime.length * 2));
+            }
+            if (coords + eventSamples * count > x.length) {
+                int size = Math.max(coords + eventSamples * count, x.length * 2);
+                x = Arrays.copyOf(x, size);
+                y = Arrays.copyOf(y, size);
+            }
+            for (int h = 0; h < eventSamples; h++) {
+                if (version > 1) {
+                    time += in.readLong();
+                }
+                sampleTime[samples++] = time;
+                for (int p = 0; p < count; p++) {
+                    if (version == 1) {
+                        ids[pointers + p] = readPointerId(in);
+                    }
+                    int id = ids[pointers + p];
+                    lastX[id] += in.readSignedInt();
+                    lastY[id] += in.readSignedInt();
+                    x[coords] = lastX[id] / SCALE;
+                    y[coords] = lastY[id] / SCALE;
+                    coords++;
+                }
+            }
+            pointers += count;
+        }
+        pointerStarts[eventCount] = pointers;
+        sampleStarts[eventCount] = samples;
+        coordStarts[eventCount] = coords;
+        pointerIds = ids;
+        sampleTimes = sampleTime;
+        xs = x;
+        ys = y;
+    }
+
+    private static int readPointerId(Input in) throws IOException {
+        int id = in.readInt();
+        if (id < 0 || id > MAX_POINTER_ID) {
+            throw new IOException("Invalid pointer id: " + id);
+        }
+        return id;
+    }
+
+    /**
+     * @param data a trace as written by {@link #writeTo(OutputStream)}
+     * @throws IOException if the data is not a valid trace
+     */
+    public static GestureTrace fromByteArray(byte[] data) throws IOException {
+        return new GestureTrace(Util.requireNonNull(data).clone());
+    }
+
+    /**
+     * Reads a trace from the stream until its end, the stream is not closed
+     *
+     * @throws IOException if the stream fails or does not contain a valid trace
+     */
+    public static GestureTrace readFrom(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new GestureTrace(out.toByteArray());
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(data);
+    }
+
+    public byte[] toByteArray() {
+        return data.clone();
+    }
+
+    /**
+     * @return width of the slider the trace was recorded on
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return height of the slider the trace was recorded on
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return time from the first to the last event in ms
+     */
+    public long getDurationMillis() {
+        return eventCount == 0 ? 0 : getEventTime(eventCount - 1);
+    }
+
+    /**
+     * @return time of the event in ms since the first event
+     */
+    public long getEventTime(int event) {
+        return sampleTimes[sampleStarts[event + 1] - 1];
+    }
+
+    /**
+     * @return number of historical samples batched into the event, see
+     * {@link MotionEvent#getHistorySize()}
+     */
+    public int getHistorySize(int event) {
+        return sampleStarts[event + 1] - sampleStarts[event] - 1;
+    }
+
+    /**
+     * @param pos the historical sample, oldest first
+     * @return time of the sample in ms since the first event
+     */
+    public long getHistoricalEventTime(int event, int pos) {
+        return sampleTimes[sampleStarts[event] + checkHistoryPos(event, pos)];
+    }
+
+    /**
+     * @return the action of the event as returned by {@link MotionEvent#getAction()}
+     */
+    public int getAction(int event) {
+        return actions[event];
+    }
+
+    public int getPointerCount(int event) {
+        return pointerStarts[event + 1] - pointerStarts[event];
+    }
+
+    public int getPointerId(int event, int pointerIndex) {
+        return pointerIds[pointerStarts[event] + pointerIndex];
+    }
+
+    public float getX(int event, int pointerIndex) {
+        return xs[coordIndex(event, pointerIndex, getHistorySize(event))];
+    }
+
+    public float getY(int event, int pointerIndex) {
+        return ys[coordIndex(event, pointerIndex, getHistorySize(event))];
+    }
+
+    public float getHistoricalX(int event, int pointerIndex, int pos) {
+        return xs[coordIndex(event, pointerIndex, checkHistoryPos(event, pos))];
+    }
+
+    public float getHistoricalY(int event, int pointerIndex, int pos) {
+        return ys[coordIndex(event, pointerIndex, checkHistoryPos(event, pos))];
+    }
+
+    private int checkHistoryPos(int event, int pos) {
+        if (pos < 0 || pos >= getHistorySize(event)) {
+            throw new IndexOutOfBoundsException("pos: " + pos);
+        }
+        return pos;
+    }
+
+    private int coordIndex(int event, int pointerIndex, int sample) {
+        final int count = getPointerCount(event);
+        if (pointerIndex < 0 || pointerIndex >= count) {
+            throw new IndexOutOfBoundsException("pointerIndex: " + pointerIndex);
+        }
+        return coordStarts[event] + sample * count + pointerIndex;
+    }
+
+    /**
+     * Creates the motion events of the trace, they have to be recycled by the caller.
+     *
+     * @param startTime event time of the first event, e.g. {@link SystemClock#uptimeMillis()}
+     */
+    public MotionEvent[] toMotionEvents(long startTime) {
+        MotionEvent[] events = new MotionEvent[eventCount];
+        MotionEvent.PointerProperties[] properties =
+                new MotionEvent.PointerProperties[MAX_POINTER_ID + 1];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[MAX_POINTER_ID + 1];
+        for (int i = 0; i < properties.length; i++) {
+            properties[i] = new MotionEvent.PointerProperties();
+            properties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[i] = new MotionEvent.PointerCoords();
+            coords[i].pressure = 1f;
+            coords[i].size = 1f;
+        }
+        long downTime = startTime;
+        for (int i = 0; i < eventCount; i++) {
+            final int first = sampleStarts[i];
+            final int last = sampleStarts[i + 1] - 1;
+            if ((actions[i] & MotionEvent.ACTION_MASK) == MotionEvent.ACTION_DOWN) {
+                downTime = startTime + sampleTimes[last];
+            }
+            int count = getPointerCount(i);
+            MotionEvent.PointerProperties[] eventProperties =
+                    new MotionEvent.PointerProperties[count];
+            MotionEvent.PointerCoords[] eventCoords = new MotionEvent.PointerCoords[count];
+            for (int p = 0; p < count; p++) {
+                eventProperties[p] = properties[p];
+                eventProperties[p].id = getPointerId(i, p);
+                eventCoords[p] = coords[p];
+            }
+            //the oldest sample creates the event, the newer ones are batched on top of it
+            for (int sample = first; sample <= last; sample++) {
+                for (int p = 0; p < count; p++) {
+                    int c = coordStarts[i] + (sample - first) * count + p;
+                    eventCoords[p].x = xs[c];
+                    eventCoords[p].y = ys[c];
+                }
+                long sampleTime = startTime + sampleTimes[sample];
+                if (sample == first) {
+                    events[i] = MotionEvent.obtain(downTime, sampleTime, actions[i], count,
+                            eventProperties, eventCoords, 0, 0, 1f, 1f, 0, 0,
+                            InputDevice.SOURCE_TOUCHSCREEN, 0);
+                } else {
+                    events[i].addBatch(sampleTime, eventCoords, 0);
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Feeds the trace into the slider, keeping the original timing between the events in the
+     * event times, but handling them right after each other.
+     * <p/>
+     * The slider should be laid out with the size the trace was recorded with and have the
+     * same thumbs and scale for the values to match the recorded gesture.
+     *
+     * @return the values after each event and the time it took to handle it
+     */
+    public Replay replay(MultiSlider slider) {
+        final int thumbCount = slider.getThumbCount();
+        MultiSlider.Thumb[] thumbs = new MultiSlider.Thumb[thumbCount];
+        int[] initialValues = new int[thumbCount];
+        for (int t = 0; t < thumbCount; t++) {
+            thumbs[t] = slider.getThumb(t);
+            initialValues[t] = thumbs[t].getValue();
+        }
+        int[] values = new int[eventCount * thumbCount];
+        long[] nanos = new long[eventCount];
+        MotionEvent[] events = toMotionEvents(SystemClock.uptimeMillis());
+        try {
+            for (int i = 0; i < eventCount; i++) {
+                long start = System.nanoTime();
+                slider.onTouchEvent(events[i]);
+                nanos[i] = System.nanoTime() - start;
+                for (int t = 0; t < thumbCount; t++) {
+                    values[i * thumbCount + t] = thumbs[t].getValue();
+                }
+            }
+        } finally {
+            for (MotionEvent event : events) {
+                event.recycle();
+            }
+        }
+        return new Replay(thumbCount, initialValues, values, nanos);
+    }
+
+    /**
+     * Result of {@link #replay(MultiSlider)}
+     */
+    public static final class Replay {
+        private final int thumbCount;
+        private final int[] initialValues;
+        private final int[] values;
+        private final long[] nanos;
+
+        private Replay(int thumbCount, int[] initialValues, int[] values, long[] nanos) {
+            this.thumbCount = thumbCount;
+            this.initialValues = initialValues;
+            this.values = values;
+            this.nanos = nanos;
+        }
+
+        public int getEventCount() {
+            return nanos.length;
+        }
+
+        public int getThumbCount() {
+            return thumbCount;
+        }
+
+        /**
+         * @return value of the thumb after the event was handled
+         */
+        public int getValue(int event, int thumbIndex) {
+            if (thumbIndex < 0 || thumbIndex >= thumbCount) {
+                throw new IndexOutOfBoundsException("thumbIndex: " + thumbIndex);
+            }
+            return values[event * thumbCount + thumbIndex];
+        }
+
+        /**
+         * @return the values of all the thumbs after the event was handled
+         */
+        public int[] getValues(int event) {
+            return Arrays.copyOfRange(values, event * thumbCount, (event + 1) * thumbCount);
+        }
+
+        /**
+         * @return the values of all the thumbs after the last event or before the replay if
+         * there were no events
+         */
+        public int[] getFinalValues() {
+            return nanos.length == 0 ? initialValues.clone() : getValues(nanos.length - 1);
+        }
+
+        /**
+         * @return number of events after which at least one thumb had a different value
+         */
+        public int getValueChangeCount() {
+            int changes = 0;
+            for (int i = 0; i < nanos.length; i++) {
+                for (int t = 0; t < thumbCount; t++) {
+                    int prev = (i == 0) ? initialValues[t] : values[(i - 1) * thumbCount + t];
+                    if (values[i * thumbCount + t] != prev) {
+                        changes++;
+                        break;
+                    }
+                }
+            }
+            return changes;
+        }
+
+        /**
+         * @return time it took the slider to handle the event in ns
+         */
+        public long getEventNanos(int event) {
+            return nanos[event];
+        }
+
+        public long getTotalNanos() {
+            long total = 0;
+            for (long n : nanos) {
+                total += n;
+            }
+            return total;
+        }
+
+        public long getMaxNanos() {
+            long max = 0;
+            for (long n : nanos) {
+                max = Math.max(max, n);
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Records the events dispatched to the slider it is set to with
+     * {@link MultiSlider#setGestureRecorder(Recorder)}. Recording only appends to a growing
+     * byte buffer and must be done on the main thread.
+     */
+    public static final class Recorder {
+        private final Output out = new Output();
+        private final int[] lastX = new int[MAX_POINTER_ID + 1];
+        private final int[] lastY = new int[MAX_POINTER_ID + 1];
+        private int eventCount;
+        private int width;
+        private int height;
+        private long lastTime;
+
+        public int getEventCount() {
+            return eventCount;
+        }
+
+        /**
+         * Drops all the recorded events
+         */
+        public void reset() {
+            out.reset();
+            Arrays.fill(lastX, 0);
+            Arrays.fill(lastY, 0);
+            eventCount = 0;
+        }
+
+        /**
+         * @return a trace of all the events recorded since the last reset or finish, the
+         * recording starts over
+         */
+        public GestureTrace finish() {
+            Output header = new Output();
+            header.writeFixedInt(MAGIC);
+            header.writeByte(VERSION);
+            header.writeInt(width);
+            header.writeInt(height);
+            header.writeInt(eventCount);
+            byte[] data = new byte[header.length + out.length];
+            System.arraycopy(header.buffer, 0, data, 0, header.length);
+            System.arraycopy(out.buffer, 0, data, header.length, out.length);
+            reset();
+            try {
+                return new GestureTrace(data);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void record(MultiSlider slider, MotionEvent event) {
+            if (eventCount == 0) {
+                width = slider.getWidth();
+                height = slider.getHeight();
+                lastTime = event.getHistorySize() > 0 ? event.getHistoricalEventTime(0)
+                        : event.getEventTime();
+            }
+            out.writeInt(event.getAction());
+            final int count = event.getPointerCount();
+            out.writeInt(count);
+            for (int p = 0; p < count; p++) {
+                out.writeInt(event.getPointerId(p) & MAX_POINTER_ID);
+            }
+            final int historySize = event.getHistorySize();
+            out.writeInt(historySize);
+            for (int h = 0; h < historySize; h++) {
+                writeTime(event.getHistoricalEventTime(h));
+                for (int p = 0; p < count; p++) {
+                    writeCoords(event.getPointerId(p) & MAX_POINTER_ID,
+                            event.getHistoricalX(p, h), event.getHistoricalY(p, h));
+                }
+            }
+            writeTime(event.getEventTime());
+            for (int p = 0; p < count; p++) {
+                writeCoords(event.getPointerId(p) & MAX_POINTER_ID, event.getX(p),
+                        event.getY(p));
+            }
+            eventCount++;
+        }
+
+        private void writeTime(long time) {
+            out.writeLong(Math.max(0, time - lastTime));
+            lastTime = Math.max(lastTime, time);
+        }
+
+        private void writeCoords(int id, float eventX, float eventY) {
+            int x = Math.round(eventX * SCALE);
+            int y = Math.round(eventY * SCALE);
+            out.writeSignedInt(x - lastX[id]);
+            out.writeSignedInt(y - lastY[id]);
+            lastX[id] = x;
+            lastY[id] = y;
+        }
+    }
+
+    private static final class Output {
+        byte[] buffer = new byte[256];
+        int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        void writeByte(int b) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[length++] = (byte) b;
+        }
+
+        void writeFixedInt(int value) {
+            writeByte(value >>> 24);
+            writeByte(value >>> 16);
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        void writeInt(int value) {
+            writeLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeSignedInt(int value) {
+            writeInt((value << 1) ^ (value >> 31));
+        }
+
+        void writeLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+    }
+
+    private static final class Input {
+        private final byte[] data;
+        private int pos;
+
+        Input(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() throws IOException {
+            if (pos >= data.length) {
+                throw new IOException("Truncated gesture trace");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        int readFixedInt() throws IOException {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        int readInt() throws IOException {
+            long value = readLong();
+            if (value > 0xFFFFFFFFL) {
+                throw new IOException("Invalid gesture trace");
+            }
+            return (int) value;
+        }
+
+        int readSignedInt() throws IOException {
+            int value = readInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Invalid gesture trace");
+        }
+    }
+}
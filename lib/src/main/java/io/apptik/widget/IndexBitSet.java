@@ -0,0 +1,92 @@
+package io.apptik.widget;
+
+
+/**
+ * Minimal growable set of non negative indices backed by a long array.
+ * Unlike {@link java.util.BitSet} it does not allocate once it has grown to the largest index
+ * used and exposes only what the slider needs.
+ */
+final class IndexBitSet {
+
+    private long[] words = new long[1];
+    //number of words that may contain set bits
+    private int inUse = 0;
+
+    void set(int index) {
+        int word = index >>> 6;
+        if (word >= words.length) {
+            long[] newWords = new long[Math.max(word + 1, words.length * 2)];
+            System.arraycopy(words, 0, newWords, 0, inUse);
+            words = newWords;
+        }
+        words[word] |= 1L << index;
+        if (word >= inUse) {
+            inUse = word + 1;
+        }
+    }
+
+    boolean get(int index) {
+        int word = index >>> 6;
+        return word < inUse && (words[word] & (1L << index)) != 0;
+    }
+
+    void clear(int index) {
+        int word = index >>> 6;
+        if (word < inUse) {
+            words[word] &= ~(1L << index);
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < inUse; i++) {
+            words[i] = 0;
+        }
+        inUse = 0;
+    }
+
+    /**
+     * Clears all the indices starting from the given one
+     */
+    void clearFrom(int index) {
+        int word = index >>> 6;
+        if (word >= inUse) return;
+        //shift is modulo 64, so this keeps only the bits below index in its word
+        words[word] &= (1L << index) - 1;
+        for (int i = word + 1; i < inUse; i++) {
+            words[i] = 0;
+        }
+        inUse = word + 1;
+    }
+
+    boolean isEmpty() {
+        for (int i = 0; i < inUse; i++) {
+            if (words[i] != 0) return false;
+        }
+        return true;
+    }
+
+    int cardinality() {
+        int res = 0;
+        for (int i = 0; i < inUse; i++) {
+            res += Long.bitCount(words[i]);
+        }
+        return res;
+    }
+
+    /**
+     * @return the first set index that is equal to or after fromIndex, or -1 if there is none
+     */
+    int nextSetBit(int fromIndex) {
+        if (fromIndex < 0) fromIndex = 0;
+        int word = fromIndex >>> 6;
+        if (word >= inUse) return -1;
+        long bits = words[word] & (-1L << fromIndex);
+        while (true) {
+            if (bits != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word >= inUse) return -1;
+            bits = words[word];
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.apptik.widget;
+
+
+/**
+ * Extrapolates the position of a pointer a short time ahead of the last delivered sample.
+ * <p/>
+ * The velocity is a least-squares linear fit over the most recent samples, which smooths out
+ * the jitter of single touch samples better than a plain two point difference.
+ * Samples are kept in a fixed size ring so feeding and predicting never allocates.
+ */
+final class MotionPredictor {
+
+    /**
+     * max number of samples used for the fit
+     */
+    static final int MAX_SAMPLES = 6;
+
+    /**
+     * samples older than this (in ms) compared to the last one are not used for the fit
+     */
+    static final long MAX_SAMPLE_AGE = 60;
+
+    private final long[] times = new long[MAX_SAMPLES];
+    private final float[] positions = new float[MAX_SAMPLES];
+    //index of the last added sample
+    private int head = -1;
+    private int count = 0;
+
+    /**
+     * Forget all the samples, e.g. when a new gesture starts
+     */
+    void reset() {
+        head = -1;
+        count = 0;
+    }
+
+    /**
+     * @param time     sample time in ms
+     * @param position sample position in pixels
+     */
+    void addSample(long time, float position) {
+        if (count > 0 && time <= times[head]) {
+            //same or out of order time, just take the newest position
+            positions[head] = position;
+            return;
+        }
+        head = (head + 1) % MAX_SAMPLES;
+        times[head] = time;
+        positions[head] = position;
+        if (count < MAX_SAMPLES) {
+            count++;
+        }
+    }
+
+    /**
+     * @return the position of the last added sample or 0 if there is none
+     */
+    float getLastPosition() {
+        return count == 0 ? 0 : positions[head];
+    }
+
+    /**
+     * @param horizon time in ms after the last sample for which the position is predicted
+     * @return the predicted position, or the last known one if there is not enough data
+     */
+    float predict(long horizon) {
+        if (count == 0) return 0;
+        float last = positions[head];
+        if (count < 2 || horizon <= 0) return last;
+
+        long lastTime = times[head];
+        int n = 0;
+        float sumT = 0, sumX = 0;
+        for (int i = 0, idx = head; i < count; i++, idx = (idx - 1 + MAX_SAMPLES) % MAX_SAMPLES) {
+            long age = lastTime - times[idx];
+            if (age > MAX_SAMPLE_AGE) break;
+            sumT -= age;
+            sumX += positions[idx];
+            n++;
+        }
+        if (n < 2) return last;
+
+        float meanT = sumT / n;
+        float meanX = sumX / n;
+        float num = 0, den = 0;
+        for (int i = 0, idx = head; i < n; i++, idx = (idx - 1 + MAX_SAMPLES) % MAX_SAMPLES) {
+            float dt = -(lastTime - times[idx]) - meanT;
+            num += dt * (positions[idx] - meanX);
+            den += dt * dt;
+        }
+        if (den == 0) return last;
+
+        return last + (num / den) * horizon;
+    }
+}
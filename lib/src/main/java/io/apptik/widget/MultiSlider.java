@@ -19,24 +19,33 @@ package io.apptik.widget;
 
 import android.annotation.TargetApi;
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.view.Choreographer;
 import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.view.InputDevice;
+import android.view.KeyEvent;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.view.accessibility.AccessibilityNodeProvider;
 
-import androidx.core.content.ContextCompat;
 import androidx.core.graphics.drawable.DrawableCompat;
+import androidx.core.os.TraceCompat;
+import androidx.core.view.ViewCompat;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -64,6 +73,35 @@ public class MultiSlider extends View {
                 value);
     }
 
+    public interface OnThumbValuesChangeListener {
+        /**
+         * called once per batch of changes, e.g. once per touch event even if several thumbs
+         * moved, or once per {@link #beginBatchEdit()}/{@link #endBatchEdit()} pair
+         *
+         * @param multiSlider
+         * @param values      read-only view of all the thumb values and of which of them
+         *                    changed. It is reused and valid only during this call.
+         */
+        void onValuesChanged(MultiSlider multiSlider, ThumbValues values);
+    }
+
+    /**
+     * Source of the scale and thumbs for {@link #bind(Model)}
+     */
+    public interface Model {
+        int getThumbCount();
+
+        int getScaleMin();
+
+        int getScaleMax();
+
+        int getThumbValue(int thumbIndex);
+
+        int getThumbMin(int thumbIndex);
+
+        int getThumbMax(int thumbIndex);
+    }
+
     public interface OnTrackingChangeListener {
         /**
          * This is called when the user has started touching this widget.
@@ -84,9 +122,36 @@ public class MultiSlider extends View {
         void onStopTrackingTouch(MultiSlider multiSlider, MultiSlider.Thumb thumb, int value);
     }
 
-    private AccessibilityNodeProvider mAccessibilityNodeProvider;
+    //system trace sections, off by default so the disabled cost is a static field read
+    private static boolean sTracingEnabled = false;
+    static final String TRACE_MEASURE = "MultiSlider#onMeasure";
+    static final String TRACE_DRAW = "MultiSlider#onDraw";
+    static final String TRACE_TOUCH = "MultiSlider#onTouchEvent";
+    static final String TRACE_SET_VALUE = "MultiSlider#setThumbValue";
+    static final String TRACE_OPT_VALUE = "MultiSlider#optThumbValue";
+    static final String TRACE_UPDATE_THUMB = "MultiSlider#updateThumb";
+
+    //created on the first request of an accessibility service
+    private VirtualTreeProvider mAccessibilityNodeProvider;
+    static final long DEFAULT_ACCESSIBILITY_EVENT_INTERVAL = 200;
+    //min time in ms between accessibility reports of thumb changes
+    private long mAccessibilityEventInterval = DEFAULT_ACCESSIBILITY_EVENT_INTERVAL;
     private OnThumbValueChangeListener mOnThumbValueChangeListener;
     private OnTrackingChangeListener mOnTrackingChangeListener;
+    //additional listeners, arrays are replaced on add/remove so dispatch can iterate them safely
+    private static final OnThumbValueChangeListener[] NO_VALUE_LISTENERS =
+            new OnThumbValueChangeListener[0];
+    private static final OnTrackingChangeListener[] NO_TRACKING_LISTENERS =
+            new OnTrackingChangeListener[0];
+    private OnThumbValueChangeListener[] mValueChangeListeners = NO_VALUE_LISTENERS;
+    private OnTrackingChangeListener[] mTrackingChangeListeners = NO_TRACKING_LISTENERS;
+    private static final OnThumbValuesChangeListener[] NO_VALUES_LISTENERS =
+            new OnThumbValuesChangeListener[0];
+    private OnThumbValuesChangeListener[] mValuesChangeListeners = NO_VALUES_LISTENERS;
+
+    //nesting level of batch edits, changes are reported to OnThumbValuesChangeListener at 0
+    private int mBatchDepth = 0;
+    private final ThumbValues mBatchValues = new ThumbValues();
 
     int mMinWidth;
     int mMaxWidth;
@@ -129,15 +194,118 @@ public class MultiSlider extends View {
      */
     private int mKeyProgressIncrement = 1;
 
+    /**
+     * While a key is held down the increment grows by mKeyProgressIncrement every that many
+     * repeats up to KEY_ACCELERATION_MAX times the initial one.
+     */
+    static final int KEY_ACCELERATION_REPEATS = 4;
+    static final int KEY_ACCELERATION_MAX = 10;
+
+    //index of the thumb moved by keys and rotary input
+    private int mFocusedThumb = 0;
+    //key and rotary changes are applied once per frame
+    private Thumb mKeyThumb;
+    private int mKeyPendingValue;
+    private boolean mKeyUpdatePosted;
+    private final Runnable mKeyUpdate = new Runnable() {
+        @Override
+        public void run() {
+            mKeyUpdatePosted = false;
+            if (mKeyThumb != null && mThumbs.contains(mKeyThumb)) {
+                setThumbValue(mKeyThumb, mKeyPendingValue, true);
+                recordHistory();
+            }
+            mKeyThumb = null;
+        }
+    };
+
     private static final int NO_ALPHA = 0xFF;
     private float mDisabledAlpha = 0.5f;
 
     private int mScaledTouchSlop;
     private float mTouchDownX;
+
+    /**
+     * How far ahead in ms the dragged thumbs are drawn, 0 to disable prediction.
+     */
+    private long mPredictionHorizon = 0;
+    static final int NO_PREDICTION = Integer.MIN_VALUE;
+
+    /**
+     * Whether slow drags move the thumb by a fine value per pixel instead of following the
+     * touch position.
+     */
+    private boolean mPrecisionDragEnabled = false;
+    //drags slower than this (px/s) use the fine gain
+    private float mPrecisionSlowVelocity;
+    //drags faster than this (px/s) use absolute positioning
+    private float mPrecisionFastVelocity;
+    static final float PRECISION_SLOW_VELOCITY_DP = 60f;
+    static final float PRECISION_FAST_VELOCITY_DP = 600f;
+    //gain curve between the slow and fast velocity: 0 is the fine gain, 1 is the absolute one
+    private static final float[] PRECISION_GAIN_CURVE = new float[32];
+
+    static {
+        for (int i = 0; i < PRECISION_GAIN_CURVE.length; i++) {
+            float t = (float) i / (PRECISION_GAIN_CURVE.length - 1);
+            //smoothstep so the gain does not jump when crossing the thresholds
+            PRECISION_GAIN_CURVE[i] = t * t * (3 - 2 * t);
+        }
+    }
+
+    private VelocityTracker mVelocityTracker;
+
+    /**
+     * Whether touching the range between two thumbs drags both thumbs together.
+     */
+    private boolean mRangeDragEnabled = false;
+    //index of the first thumb of the range being touched, -1 if none
+    private int mRangeDragIndex = -1;
+    private boolean mRangeDragStarted;
+    private float mRangeDragStartX;
+    private int mRangeDragStartLow;
+    private int mRangeDragStartHigh;
+
+    /**
+     * Whether released thumbs keep moving with the release velocity and decelerate.
+     */
+    private boolean mFlingEnabled = false;
+    private float mFlingFriction = ThumbFlinger.DEFAULT_FRICTION;
+    private ThumbFlinger mFlinger;
+    private int mMinimumFlingVelocity;
+    private int mMaximumFlingVelocity;
+
+    /**
+     * Undo/redo history of the thumb values, null if disabled.
+     */
+    private ValueHistory mHistory;
+    static final int DEFAULT_HISTORY_CAPACITY = 50;
+    //room for thumb changes per history entry on average
+    static final int HISTORY_CHANGES_PER_ENTRY = 4;
+    private int mHistoryCapacity = DEFAULT_HISTORY_CAPACITY;
+    //min time in ms between entries recorded while dragging, 0 to record only released thumbs
+    private long mHistoryInterval = 0;
+    private long mHistoryLastRecordTime;
+    //a thumb was released and the values are to be recorded once all the thumbs stopped
+    private boolean mHistoryPending;
+    //values passed to and from the history
+    private int[] mHistoryValues = new int[2];
     //thumbs that are currently being dragged
     private final List<Thumb> mDraggingThumbs = new LinkedList<>();
     //thumbs that are currently being touched
     LinkedList<Thumb> exactTouched = null;
+    //thumb centers for the closest thumb lookup, invalidated when thumbs move
+    private int[] mThumbCenters = new int[2];
+    private int[] mThumbWidths = new int[2];
+    private int mThumbCentersCount = 0;
+    private boolean mThumbCentersValid = false;
+    //virtual view under the hovering pointer during explore-by-touch
+    private int mHoveredThumb = View.NO_ID;
+    //looked up once, hover events come at touch rate
+    private AccessibilityManager mAccessibilityManager;
+    private GestureTrace.Recorder mGestureRecorder;
+    //work counters, null if disabled
+    private MultiSliderMetrics mMetrics;
 
 
     private Drawable defThumbDrawable;
@@ -145,7 +313,8 @@ public class MultiSlider extends View {
     private Drawable defRangeDrawable;
     private int defRangeColor = 0;
 
-    private final TypedArray a;
+    //thumbs removed by bind or restore, reused when thumbs are needed again
+    private final ArrayList<Thumb> mThumbPool = new ArrayList<>();
 
     /**
      * Thumb is the main object in MultiSlider.
@@ -169,6 +338,21 @@ public class MultiSlider extends View {
         //this is the line from the beginning or the previous thumb if any until the this one.
         Drawable range;
         int thumbOffset;
+        //value the thumb is drawn at while dragged with motion prediction
+        int predictedValue = NO_PREDICTION;
+        MotionPredictor predictor;
+        //fractional value and last touch position used for precision dragging
+        float precisionValue;
+        float precisionLastX;
+        //accessibility text and the value and tag it was built for
+        private String a11yText;
+        private int a11yTextValue;
+        private String a11yTextTag;
+        //state last reported to accessibility, bounds are relative to the view
+        private boolean a11yReported = false;
+        private int a11yValue;
+        private boolean a11yEnabled;
+        private Rect a11yBounds;
 
         //cannot be moved if invisible and it is not displayed
         private boolean isInvisible = false;
@@ -213,6 +397,7 @@ public class MultiSlider extends View {
                     getThumb().setState(new int[]{-android.R.attr.state_enabled});
                 }
             }
+            notifyAccessibilityChange();
             return this;
         }
 
@@ -230,6 +415,7 @@ public class MultiSlider extends View {
          */
         public void setInvisibleThumb(boolean invisibleThumb) {
             this.isInvisible = invisibleThumb;
+            notifyAccessibilityChange();
         }
 
         /**
@@ -271,8 +457,7 @@ public class MultiSlider extends View {
             if (this.min != min) {
                 this.min = min;
                 if (value < this.min) {
-                    value = this.min;
-                    invalidate();
+                    clampValue(this.min);
                 }
             }
             return this;
@@ -299,13 +484,23 @@ public class MultiSlider extends View {
             if (this.max != max) {
                 this.max = max;
                 if (value > this.max) {
-                    value = this.max;
-                    invalidate();
+                    clampValue(this.max);
                 }
             }
             return this;
         }
 
+        /**
+         * Moves the value to a new limit. On the slider this goes through the usual value
+         * update, so the change is reported to the listeners like any other.
+         */
+        private void clampValue(int limit) {
+            if (!mThumbs.contains(this) || !setThumbValue(this, limit, false)) {
+                value = limit;
+                invalidate();
+            }
+        }
+
         /**
          * @return Thumb's current value
          */
@@ -337,6 +532,43 @@ public class MultiSlider extends View {
             return this;
         }
 
+        /**
+         * @return the accessibility text, rebuilt only when the value or the tag changed
+         */
+        String getA11yText() {
+            if (a11yText == null || a11yTextValue != value || a11yTextTag != tag) {
+                a11yText = tag + ": " + value;
+                a11yTextValue = value;
+                a11yTextTag = tag;
+            }
+            return a11yText;
+        }
+
+        /**
+         * Compares the current state with the one last reported to accessibility and takes it
+         * as reported. The first state is taken when the accessibility provider is created or,
+         * for thumbs added later, when the node of the thumb is first built.
+         *
+         * @return true if the value, the enabled state or the bounds changed since the last
+         * report, false also if the thumb was never reported
+         */
+        boolean updateA11yState() {
+            final boolean enabled = isEnabled();
+            final Rect bounds = thumb == null ? null : thumb.getBounds();
+            if (a11yBounds == null) {
+                a11yBounds = new Rect();
+            }
+            boolean changed = a11yReported && (a11yValue != value || a11yEnabled != enabled
+                    || (bounds != null && !a11yBounds.equals(bounds)));
+            a11yReported = true;
+            a11yValue = value;
+            a11yEnabled = enabled;
+            if (bounds != null) {
+                a11yBounds.set(bounds);
+            }
+            return changed;
+        }
+
         /**
          * @return The thumb drawable
          */
@@ -350,6 +582,7 @@ public class MultiSlider extends View {
          */
         public Thumb setThumb(Drawable mThumb) {
             this.thumb = mThumb;
+            mThumbCentersValid = false;
             return this;
         }
 
@@ -373,7 +606,7 @@ public class MultiSlider extends View {
     }
 
     public MultiSlider(Context context) {
-        this(context, null);
+        this(context, (AttributeSet) null);
     }
 
     public MultiSlider(Context context, AttributeSet attrs) {
@@ -386,98 +619,92 @@ public class MultiSlider extends View {
 
     public MultiSlider(Context context, AttributeSet attrs, int defStyle, int styleRes) {
         super(context, attrs, defStyle);
+        init(context, MultiSliderConfig.fromStyle(context, attrs, defStyle, styleRes));
+    }
+
+    /**
+     * Creates a slider from an already resolved config, which skips resolving the style
+     * attributes and loading the drawables.
+     *
+     * @param context the context
+     * @param config  the config, can be shared between sliders
+     */
+    public MultiSlider(Context context, MultiSliderConfig config) {
+        super(context);
+        init(context, requireNonNull(config));
+    }
+
+    private void init(Context context, MultiSliderConfig config) {
         if ((Build.VERSION.SDK_INT >= 21) && getBackground() == null) {
             setBackgroundResource(R.drawable.control_background_multi_material);
         }
 
         mUiThreadId = Thread.currentThread().getId();
 
-        a = context.obtainStyledAttributes(attrs, io.apptik.widget.mslider.R.styleable.MultiSlider,
-                defStyle, styleRes);
         mNoInvalidate = true;
-        int numThumbs = a.getInt(io.apptik.widget.mslider.R.styleable.MultiSlider_thumbNumber, 2);
-        initMultiSlider(numThumbs);
-
-        Drawable trackDrawable = a.getDrawable(io.apptik.widget.mslider.R.styleable
-                .MultiSlider_android_track);
-        if (trackDrawable == null) {
-            trackDrawable = ContextCompat.getDrawable(getContext(),
-                    R.drawable.multislider_track_material
-            );
-        }
-
-        setTrackDrawable(getTintedDrawable(trackDrawable, a.getColor(io.apptik.widget.mslider.R
-                .styleable.MultiSlider_trackColor, 0)));
-
-        //TODO?
-//        mMinWidth = a.getDimensionPixelSize(R.styleable.MultiSlider_minWidth, mMinWidth);
-//        mMaxWidth = a.getDimensionPixelSize(R.styleable.MultiSlider_maxWidth, mMaxWidth);
-//        mMinHeight = a.getDimensionPixelSize(R.styleable.MultiSlider_minHeight, mMinHeight);
-//        mMaxHeight = a.getDimensionPixelSize(R.styleable.MultiSlider_maxHeight, mMaxHeight);
-
-
-        setStep(a.getInt(io.apptik.widget.mslider.R.styleable.MultiSlider_scaleStep, mStep));
-        setStepsThumbsApart(a.getInt(io.apptik.widget.mslider.R.styleable
-                        .MultiSlider_stepsThumbsApart,
-                mStepsThumbsApart));
-        setDrawThumbsApart(a.getBoolean(io.apptik.widget.mslider.R.styleable
-                        .MultiSlider_drawThumbsApart,
-                mDrawThumbsApart));
-        setMax(a.getInt(io.apptik.widget.mslider.R.styleable.MultiSlider_scaleMax, mScaleMax),
-                true);
-        setMin(a.getInt(io.apptik.widget.mslider.R.styleable.MultiSlider_scaleMin, mScaleMin),
-                true);
+        initMultiSlider(config.thumbNumber);
 
+        setTrackDrawable(getTintedDrawable(newDrawable(config.track),
+                config.trackColor));
 
-        mMirrorForRtl = a.getBoolean(io.apptik.widget.mslider.R.styleable.MultiSlider_mirrorForRTL,
-                mMirrorForRtl);
-
-        // --> now place thumbs
-
-        defThumbDrawable = a.getDrawable(io.apptik.widget.mslider.R.styleable
-                .MultiSlider_android_thumb);
-
-        if (defThumbDrawable == null) {
-            if (Build.VERSION.SDK_INT >= 21) {
-                defThumbDrawable = ContextCompat.getDrawable(getContext(), R.drawable
-                        .multislider_thumb_material_anim);
-            } else {
-                defThumbDrawable = ContextCompat.getDrawable(getContext(), R.drawable
-                        .multislider_thumb_material);
-            }
+        setStep(config.step);
+        setStepsThumbsApart(config.stepsThumbsApart);
+        setDrawThumbsApart(config.drawThumbsApart);
+        if (config.scaleMax >= mScaleMin) {
+            setMax(config.scaleMax, true);
+            setMin(config.scaleMin, true);
+        } else {
+            setMin(config.scaleMin, true);
+            setMax(config.scaleMax, true);
         }
 
-        defRangeDrawable = a.getDrawable(io.apptik.widget.mslider.R.styleable
-                .MultiSlider_range);
-        if (defRangeDrawable == null) {
-            defRangeDrawable = ContextCompat.getDrawable(getContext(),
-                    R.drawable.multislider_range_material
-            );
+        mMirrorForRtl = config.mirrorForRtl;
+
+        if (config.focusableSet) {
+            setFocusable(config.focusable);
         }
 
-        Drawable range1Drawable = a.getDrawable(io.apptik.widget.mslider.R.styleable
-                .MultiSlider_range1);
-        Drawable range2Drawable = a.getDrawable(io.apptik.widget.mslider.R.styleable
-                .MultiSlider_range2);
+        // --> now place thumbs
 
+        defThumbDrawable = newDrawable(config.thumb);
+        defRangeDrawable = newDrawable(config.range);
+        Drawable range1Drawable = newDrawable(config.range1);
+        Drawable range2Drawable = newDrawable(config.range2);
 
-        defRangeColor = a.getColor(io.apptik.widget.mslider.R.styleable.MultiSlider_rangeColor, 0);
-        defThumbColor = a.getColor(io.apptik.widget.mslider.R.styleable.MultiSlider_thumbColor, 0);
-        setThumbDrawables(defThumbDrawable, defRangeDrawable, range1Drawable, range2Drawable); //
+        defRangeColor = config.rangeColor;
+        defThumbColor = config.thumbColor;
+        setThumbDrawables(defThumbDrawable, defRangeDrawable, range1Drawable, config.range1Color,
+                range2Drawable, config.range2Color); //
         // will
         // guess thumbOffset if
         // thumb != null...
         // ...but allow layout to override this
 
-        int thumbOffset = a.getDimensionPixelOffset(io.apptik.widget.mslider.R.styleable
-                .MultiSlider_android_thumbOffset, defThumbDrawable.getIntrinsicWidth() / 2);
+        int thumbOffset = config.thumbOffset == MultiSliderConfig.DEFAULT_THUMB_OFFSET ?
+                defThumbDrawable.getIntrinsicWidth() / 2 : config.thumbOffset;
         setThumbOffset(thumbOffset);
 
         repositionThumbs();
 
         mScaledTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+        mMinimumFlingVelocity = ViewConfiguration.get(context).getScaledMinimumFlingVelocity();
+        mMaximumFlingVelocity = ViewConfiguration.get(context).getScaledMaximumFlingVelocity();
+        float density = getResources().getDisplayMetrics().density;
+        mPrecisionSlowVelocity = PRECISION_SLOW_VELOCITY_DP * density;
+        mPrecisionFastVelocity = PRECISION_FAST_VELOCITY_DP * density;
         mNoInvalidate = false;
-        a.recycle();
+    }
+
+    /**
+     * Creates a drawable of this slider from a shared state, applying the theme of the slider
+     * where supported so theme attribute references resolve against it.
+     */
+    private Drawable newDrawable(Drawable.ConstantState state) {
+        if (state == null) return null;
+        if (Build.VERSION.SDK_INT >= 21) {
+            return state.newDrawable(getResources(), getContext().getTheme());
+        }
+        return state.newDrawable(getResources());
     }
 
     /**
@@ -522,6 +749,15 @@ public class MultiSlider extends View {
     public void repositionThumbs() {
         if (mThumbs == null || mThumbs.isEmpty()) return;
 
+        beginBatchEdit();
+        try {
+            repositionThumbsInternal();
+        } finally {
+            endBatchEdit();
+        }
+    }
+
+    private void repositionThumbsInternal() {
         if (mThumbs.size() > 0) {
             mThumbs.getFirst().setValue(mScaleMin);
         }
@@ -547,6 +783,22 @@ public class MultiSlider extends View {
         mOnThumbValueChangeListener = l;
     }
 
+    /**
+     * Listener for value changes which is called at most once per minInterval.
+     * Changes happening in between are conflated and delivered with the latest value of each
+     * changed thumb when the interval elapses.
+     *
+     * @param l           the listener
+     * @param minInterval minimum time between two callbacks in milliseconds
+     * @see ConflatingChangeListener
+     */
+    public void setOnThumbValueChangeListener(OnThumbValueChangeListener l, long minInterval) {
+        if (l != null && minInterval > 0) {
+            l = new ConflatingChangeListener(l, minInterval);
+        }
+        setOnThumbValueChangeListener(l);
+    }
+
     /**
      * Listener for value changes and start/stop of thumb move.
      *
@@ -557,212 +809,888 @@ public class MultiSlider extends View {
     }
 
     /**
-     * @return true if thumbs will be not be drawn on top of each other even in have the same
-     * values, false otherwise
+     * Adds a listener for value changes in addition to the one set with
+     * {@link #setOnThumbValueChangeListener(OnThumbValueChangeListener)}.
+     * Listeners can be added or removed from within a callback, such change applies from the
+     * next dispatched event.
+     *
+     * @param l the listener to add
      */
-    public boolean isDrawThumbsApart() {
-        return mDrawThumbsApart;
+    public void addOnThumbValueChangeListener(OnThumbValueChangeListener l) {
+        requireNonNull(l);
+        final OnThumbValueChangeListener[] listeners = mValueChangeListeners;
+        for (OnThumbValueChangeListener listener : listeners) {
+            if (listener == l) return;
+        }
+        OnThumbValueChangeListener[] newListeners =
+                new OnThumbValueChangeListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = l;
+        mValueChangeListeners = newListeners;
     }
 
     /**
-     * @param drawThumbsApart if set to true thumbs will be not be drawn on top of each other
-     *                        even in have the same values.
+     * @param l the listener to remove
+     * @return true if the listener was found and removed
      */
-    public void setDrawThumbsApart(boolean drawThumbsApart) {
-        this.mDrawThumbsApart = drawThumbsApart;
-    }
-
-    private void initMultiSlider(int numThumbs) {
-        mStep = 1;
-        mStepsThumbsApart = 0;
-        mDrawThumbsApart = false;
-        mScaleMin = 0;
-        mScaleMax = 100;
-        mMinWidth = 24;
-        mMaxWidth = 48;
-        mMinHeight = 24;
-        mMaxHeight = 48;
-
-        for (int i = 0; i < numThumbs; i++) {
-            mThumbs.add(new Thumb().setMin(mScaleMin).setMax(mScaleMax).setTag("thumb " + i));
+    public boolean removeOnThumbValueChangeListener(OnThumbValueChangeListener l) {
+        final OnThumbValueChangeListener[] listeners = mValueChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == l) {
+                if (listeners.length == 1) {
+                    mValueChangeListeners = NO_VALUE_LISTENERS;
+                } else {
+                    OnThumbValueChangeListener[] newListeners =
+                            new OnThumbValueChangeListener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                    mValueChangeListeners = newListeners;
+                }
+                return true;
+            }
         }
+        return false;
     }
 
     /**
-     * Re-sets the number of thumbs and reposition the thumbs
+     * Adds a listener which is called once per batch of value changes with all the thumb values.
      *
-     * @param numThumbs the new number of thumbs
-     * @return the MultiSlider
+     * @param l the listener to add
+     * @see #beginBatchEdit()
      */
-    public MultiSlider setNumberOfThumbs(int numThumbs) {
-        return setNumberOfThumbs(numThumbs, true);
+    public void addOnThumbValuesChangeListener(OnThumbValuesChangeListener l) {
+        requireNonNull(l);
+        final OnThumbValuesChangeListener[] listeners = mValuesChangeListeners;
+        for (OnThumbValuesChangeListener listener : listeners) {
+            if (listener == l) return;
+        }
+        OnThumbValuesChangeListener[] newListeners =
+                new OnThumbValuesChangeListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = l;
+        mValuesChangeListeners = newListeners;
     }
 
     /**
-     * Re-sets the number of thumbs
-     *
-     * @param numThumbs the new number of thumbs
-     * @param repositon if true it will reposition the thumbs to be equally distributed across the
-     *                  scale, otherwise all thumbs will be positioned at 0
-     * @return the MultiSlider
+     * @param l the listener to remove
+     * @return true if the listener was found and removed
      */
-    public MultiSlider setNumberOfThumbs(int numThumbs, boolean repositon) {
-        clearThumbs();
-        for (int i = 0; i < numThumbs; i++) {
-            addThumb(0);
-        }
-
-        if (repositon) {
-            repositionThumbs();
+    public boolean removeOnThumbValuesChangeListener(OnThumbValuesChangeListener l) {
+        final OnThumbValuesChangeListener[] listeners = mValuesChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == l) {
+                if (listeners.length == 1) {
+                    mValuesChangeListeners = NO_VALUES_LISTENERS;
+                } else {
+                    OnThumbValuesChangeListener[] newListeners =
+                            new OnThumbValuesChangeListener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                    mValuesChangeListeners = newListeners;
+                }
+                return true;
+            }
         }
-
-        return this;
+        return false;
     }
 
     /**
-     * Add a thumb to the Slider after the last thumb
-     *
-     * @param thumb Thumb instance in the context of the Slider
-     * @return true if the thumb was added and Slider modified
+     * Starts a batch of changes. Until the matching {@link #endBatchEdit()} value changes are
+     * only collected and the {@link OnThumbValuesChangeListener}s are called once at the end.
+     * {@link OnThumbValueChangeListener}s are still called for every change.
+     * Batch edits can be nested.
      */
-    public boolean addThumb(Thumb thumb) {
-        return addThumbOnPos(thumb, mThumbs.size());
+    public void beginBatchEdit() {
+        mBatchDepth++;
     }
 
     /**
-     * Add a thumb to the Slider at a custom position
-     *
-     * @param thumb thumb instance in the context of the Slider
-     * @param pos   the position at which the thumb should be added
-     * @return true if the thumb was added and Slider modified
+     * Ends a batch of changes started with {@link #beginBatchEdit()} and reports the changes
+     * if this was the outermost batch.
      */
-    public boolean addThumbOnPos(Thumb thumb, int pos) {
-        if (mThumbs.contains(thumb)) {
-            return false;
-        }
-        if (thumb.getThumb() == null) {
-            setThumbDrawable(thumb, defThumbDrawable, defThumbColor);
+    public void endBatchEdit() {
+        if (mBatchDepth == 0) {
+            throw new IllegalStateException("endBatchEdit() without beginBatchEdit()");
         }
-        int paddingLeft = Math.max(getPaddingLeft(), thumb.getThumbOffset());
-        int paddingRight = Math.max(getPaddingRight(), thumb.getThumbOffset());
-        setPadding(paddingLeft, getPaddingTop(), paddingRight, getPaddingBottom());
-
-        if (thumb.getRange() == null) {
-            setRangeDrawable(thumb, defRangeDrawable, defRangeColor);
+        if (--mBatchDepth == 0) {
+            dispatchValuesChanged();
         }
-        mThumbs.add(pos, thumb);
-        setThumbValue(thumb, thumb.value, false);
-        return true;
     }
 
     /**
-     * Add a thumb with predefined value to the slider after the last thumb
+     * Adds a listener for start/stop of thumb move in addition to the one set with
+     * {@link #setOnTrackingChangeListener(OnTrackingChangeListener)}.
+     * Listeners can be added or removed from within a callback, such change applies from the
+     * next dispatched event.
      *
-     * @param value the initial thumb value
-     * @return the Thumb instance that was added
+     * @param l the listener to add
      */
-    public Thumb addThumb(int value) {
-        Thumb thumb = new Thumb();
-        this.addThumb(thumb);
-        thumb.setValue(value);
+    public void addOnTrackingChangeListener(OnTrackingChangeListener l) {
+        requireNonNull(l);
+        final OnTrackingChangeListener[] listeners = mTrackingChangeListeners;
+        for (OnTrackingChangeListener listener : listeners) {
+            if (listener == l) return;
+        }
+        OnTrackingChangeListener[] newListeners =
+                new OnTrackingChangeListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = l;
+        mTrackingChangeListeners = newListeners;
+    }
 
-        return thumb;
+    /**
+     * @param l the listener to remove
+     * @return true if the listener was found and removed
+     */
+    public boolean removeOnTrackingChangeListener(OnTrackingChangeListener l) {
+        final OnTrackingChangeListener[] listeners = mTrackingChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == l) {
+                if (listeners.length == 1) {
+                    mTrackingChangeListeners = NO_TRACKING_LISTENERS;
+                } else {
+                    OnTrackingChangeListener[] newListeners =
+                            new OnTrackingChangeListener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                    mTrackingChangeListeners = newListeners;
+                }
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Add a thumb to the slider after the last thumb with value to the maximum scale value
-     *
-     * @return the Thumb instance that was added
+     * @return how far ahead in ms the dragged thumbs are drawn
      */
-    public Thumb addThumb() {
-        Thumb thumb = new Thumb();
-        this.addThumb(thumb);
-        return thumb;
+    public long getPredictionHorizon() {
+        return mPredictionHorizon;
     }
 
     /**
-     * Add a thumb to the Slider at a custom position
+     * Draw the dragged thumbs where the touch is expected to be after the given time instead of
+     * where the last touch sample was, which hides part of the touch to display latency.
+     * The values reported to the listeners are always the ones of the real touch position.
      *
-     * @param pos   the position at which the thumb should be added
-     * @param value the initial thumb value
-     * @return the Thumb instance that was added
+     * @param predictionHorizon time in ms, usually about a frame, 0 disables the prediction
      */
-    public Thumb addThumbOnPos(int pos, int value) {
-        Thumb thumb = new Thumb();
-        this.addThumbOnPos(thumb, pos);
-        thumb.setValue(value);
+    public void setPredictionHorizon(long predictionHorizon) {
+        if (predictionHorizon < 0) predictionHorizon = 0;
+        this.mPredictionHorizon = predictionHorizon;
+    }
 
-        return thumb;
+    /**
+     * @return true if slow drags are used for fine value adjustment
+     */
+    public boolean isPrecisionDragEnabled() {
+        return mPrecisionDragEnabled;
     }
 
     /**
-     * Add a thumb to the Slider at a custom position
+     * Enables velocity dependent dragging. Fast drags position the thumb under the finger as
+     * usual, while slow drags move it relatively by as little as one step per pixel. This
+     * allows selecting exact values on scales with much more steps than pixels.
      *
-     * @param pos the position at which the thumb should be added
-     * @return the Thumb instance that was added
+     * @param precisionDragEnabled true to enable precision dragging
      */
-    public Thumb addThumbOnPos(int pos) {
-        Thumb thumb = new Thumb();
-        this.addThumbOnPos(thumb, pos);
-        return thumb;
+    public void setPrecisionDragEnabled(boolean precisionDragEnabled) {
+        this.mPrecisionDragEnabled = precisionDragEnabled;
     }
 
-
     /**
-     * Remove a thumb from the Slider
-     *
-     * @param thumb humb instance in the context of the Slider
-     * @return true if the thumb was found and removed
+     * @return true if thumbs continue moving after being released with a fling
      */
-    public boolean removeThumb(Thumb thumb) {
-        mDraggingThumbs.remove(thumb);
-        boolean res = mThumbs.remove(thumb);
-        invalidate();
-        return res;
+    public boolean isFlingEnabled() {
+        return mFlingEnabled;
     }
 
     /**
-     * Remove a thumb from the Slider identified by its position
+     * If enabled a thumb released while moving fast keeps moving in the same direction and
+     * decelerates until it stops or reaches its limit.
+     * Note that {@link OnTrackingChangeListener#onStopTrackingTouch} is still called when the
+     * thumb is released and the fling values are reported only to the value change listener.
      *
-     * @param thumbIndex the thumb position starting from 0
-     * @return true if the thumb was found and removed
+     * @param flingEnabled true to enable flinging thumbs
      */
-    public Thumb removeThumb(int thumbIndex) {
-        mDraggingThumbs.remove(mThumbs.get(thumbIndex));
-        invalidate();
-        Thumb res = mThumbs.remove(thumbIndex);
-        invalidate();
-        return res;
+    public void setFlingEnabled(boolean flingEnabled) {
+        this.mFlingEnabled = flingEnabled;
+        if (!flingEnabled) {
+            stopFling();
+        }
     }
 
     /**
-     * Removes all the thumbs in the Slider
+     * @return velocity decay rate per second of the thumb flings
      */
-    public void clearThumbs() {
-        mThumbs.clear();
-        mDraggingThumbs.clear();
-        invalidate();
+    public float getFlingFriction() {
+        return mFlingFriction;
     }
 
     /**
-     * set default thumb offset, which will be immediately applied to all the thumbs
-     *
-     * @param thumbOffset thumb offset in pixels
+     * @param flingFriction velocity decay rate per second of the thumb flings, higher values stop
+     *                      the thumbs sooner
      */
-    public void setThumbOffset(int thumbOffset) {
-        for (Thumb thumb : mThumbs) {
-            thumb.setThumbOffset(thumbOffset);
+    public void setFlingFriction(float flingFriction) {
+        if (flingFriction <= 0) {
+            throw new IllegalArgumentException(String.format("setFlingFriction(%f) <= 0",
+                    flingFriction));
+        }
+        this.mFlingFriction = flingFriction;
+        if (mFlinger != null) {
+            mFlinger.setFriction(flingFriction);
         }
-        invalidate();
     }
 
     /**
-     * Manually set the track drawable
-     *
-     * @param d
+     * Stops all the thumbs that are currently flinging
      */
-    public void setTrackDrawable(Drawable d) {
-        boolean needUpdate;
+    public void stopFling() {
+        if (mFlinger != null) {
+            mFlinger.cancelAll();
+        }
+    }
+
+    /**
+     * @return true if the sliders add sections to the system traces
+     */
+    public static boolean isTracingEnabled() {
+        return sTracingEnabled;
+    }
+
+    /**
+     * Enables system trace sections (see {@link android.os.Trace}) around measuring, drawing,
+     * touch handling, value constraints and thumb placement of all the sliders, so their work
+     * shows up separately in systrace and the Android Studio profiler. Sections are only
+     * recorded on API 18 and above.
+     *
+     * @param tracingEnabled true to add the trace sections
+     */
+    public static void setTracingEnabled(boolean tracingEnabled) {
+        sTracingEnabled = tracingEnabled;
+    }
+
+    /**
+     * @return true if the work done by the slider is counted
+     */
+    public boolean isMetricsEnabled() {
+        return mMetrics != null;
+    }
+
+    /**
+     * Enables counting of invalidations, layout requests, padding changes, thumb and track
+     * geometry updates, listener dispatches and draw time. The counters are cleared when
+     * enabled. Disabled metrics cost a null check per counted call.
+     *
+     * @param metricsEnabled true to count the work done by the slider
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        if (metricsEnabled == isMetricsEnabled()) return;
+        mMetrics = metricsEnabled ? new MultiSliderMetrics() : null;
+    }
+
+    /**
+     * @return the counters of the work done by the slider or null if the metrics are not
+     * enabled, see {@link #setMetricsEnabled(boolean)}
+     */
+    public MultiSliderMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * @return the recorder of the touch events or null
+     */
+    public GestureTrace.Recorder getGestureRecorder() {
+        return mGestureRecorder;
+    }
+
+    /**
+     * Records every touch event the slider receives, so the gestures can be replayed later with
+     * {@link GestureTrace#replay(MultiSlider)}, e.g. to reproduce a problem in a test.
+     *
+     * @param recorder the recorder or null to stop recording
+     */
+    public void setGestureRecorder(GestureTrace.Recorder recorder) {
+        mGestureRecorder = recorder;
+    }
+
+    /**
+     * @return true if thumb value changes are recorded for undo/redo
+     */
+    public boolean isHistoryEnabled() {
+        return mHistory != null;
+    }
+
+    /**
+     * Enables recording of the thumb values each time the user releases the thumbs, so they can
+     * be restored with {@link #undo()} and {@link #redo()}. Changes done in code are recorded
+     * together with the next user change, or right away with {@link #recordHistory()}.
+     * Changing the number of thumbs clears the history.
+     *
+     * @param historyEnabled true to enable the history
+     */
+    public void setHistoryEnabled(boolean historyEnabled) {
+        if (historyEnabled == isHistoryEnabled()) return;
+        if (historyEnabled) {
+            mHistory = new ValueHistory(mHistoryCapacity,
+                    mHistoryCapacity * HISTORY_CHANGES_PER_ENTRY);
+            mHistory.reset(snapshotValues(), mThumbs.size());
+        } else {
+            mHistory = null;
+        }
+        mHistoryPending = false;
+    }
+
+    /**
+     * @return max number of undo steps
+     */
+    public int getHistoryCapacity() {
+        return mHistoryCapacity;
+    }
+
+    /**
+     * Sets the max number of undo steps, the oldest ones are dropped when it is reached.
+     * This clears the history if it is enabled.
+     *
+     * @param historyCapacity max number of undo steps
+     */
+    public void setHistoryCapacity(int historyCapacity) {
+        if (historyCapacity < 1) {
+            throw new IllegalArgumentException(String.format("setHistoryCapacity(%d) < 1",
+                    historyCapacity));
+        }
+        if (historyCapacity == mHistoryCapacity) return;
+        mHistoryCapacity = historyCapacity;
+        if (isHistoryEnabled()) {
+            setHistoryEnabled(false);
+            setHistoryEnabled(true);
+        }
+    }
+
+    /**
+     * @return min time in ms between history entries recorded while dragging
+     */
+    public long getHistoryRecordingInterval() {
+        return mHistoryInterval;
+    }
+
+    /**
+     * By default only the values after a drag are recorded. With an interval also the values
+     * during the drag are recorded, at most once per interval, so undo can go back through it.
+     *
+     * @param historyRecordingInterval time in ms, 0 to record only the released thumbs
+     */
+    public void setHistoryRecordingInterval(long historyRecordingInterval) {
+        if (historyRecordingInterval < 0) historyRecordingInterval = 0;
+        mHistoryInterval = historyRecordingInterval;
+    }
+
+    /**
+     * Records the current values as an undo step, e.g. after changing them in code
+     *
+     * @return true if the values differ from the last recorded ones and were recorded
+     */
+    public boolean recordHistory() {
+        mHistoryPending = false;
+        return mHistory != null && mHistory.record(snapshotValues(), mThumbs.size());
+    }
+
+    /**
+     * Drops all the undo and redo steps
+     */
+    public void clearHistory() {
+        if (mHistory != null) {
+            mHistory.reset(snapshotValues(), mThumbs.size());
+        }
+        mHistoryPending = false;
+    }
+
+    public boolean canUndo() {
+        return mHistory != null && mHistory.size() == mThumbs.size() && mHistory.canUndo();
+    }
+
+    public boolean canRedo() {
+        return mHistory != null && mHistory.size() == mThumbs.size() && mHistory.canRedo();
+    }
+
+    /**
+     * Restores the values before the last recorded change. All the thumbs are updated at once
+     * and the value listeners are called only for the thumbs that changed.
+     *
+     * @return true if there was something to undo
+     */
+    public boolean undo() {
+        if (!canUndo() || !mDraggingThumbs.isEmpty()) return false;
+        //changes since the last entry are undone first
+        recordHistory();
+        ensureHistoryValues();
+        mHistory.undo(mHistoryValues);
+        applyHistoryValues();
+        return true;
+    }
+
+    /**
+     * Restores the values that were undone with {@link #undo()}
+     *
+     * @return true if there was something to redo
+     */
+    public boolean redo() {
+        if (!canRedo() || !mDraggingThumbs.isEmpty()) return false;
+        ensureHistoryValues();
+        mHistory.redo(mHistoryValues);
+        applyHistoryValues();
+        return true;
+    }
+
+    private void ensureHistoryValues() {
+        if (mHistoryValues.length < mThumbs.size()) {
+            mHistoryValues = new int[Math.max(mThumbs.size(), mHistoryValues.length * 2)];
+        }
+    }
+
+    private int[] snapshotValues() {
+        ensureHistoryValues();
+        int i = 0;
+        for (Thumb thumb : mThumbs) {
+            mHistoryValues[i++] = thumb.getValue();
+        }
+        return mHistoryValues;
+    }
+
+    /**
+     * Applies the values restored from the history with the same constraints as
+     * {@link #setThumbValues(int...)}, the thumb limits, the scale or the steps apart may have
+     * changed since they were recorded.
+     */
+    private void applyHistoryValues() {
+        stopFling();
+        beginBatchEdit();
+        try {
+            applyThumbValues(mHistoryValues, mThumbs.size());
+        } finally {
+            endBatchEdit();
+        }
+    }
+
+    /**
+     * Sets the values of the first thumbs in one batch edit, so the values listeners get one
+     * change for all of them. The thumbs moving up are set starting from the last one and the
+     * ones moving down starting from the first one, so values given in thumb order are not
+     * limited by the old values of the neighbours.
+     *
+     * @param values the values of the thumbs starting from the first one, in thumb order
+     * @throws IllegalArgumentException if there are more values than thumbs
+     */
+    public void setThumbValues(int... values) {
+        if (values.length > mThumbs.size()) {
+            throw new IllegalArgumentException(String.format("setThumbValues() %d values for " +
+                    "%d thumbs", values.length, mThumbs.size()));
+        }
+        beginBatchEdit();
+        try {
+            applyThumbValues(values, values.length);
+        } finally {
+            endBatchEdit();
+        }
+    }
+
+    /**
+     * Sets the values of the first thumbs, each constrained like with {@link Thumb#setValue}.
+     * The thumbs moving up are set starting from the last one and the ones moving down starting
+     * from the first one, then all the thumbs are placed with one update.
+     *
+     * @param values the values in thumb order
+     * @param count  the number of values to set
+     */
+    private void applyThumbValues(int[] values, int count) {
+        int firstChanged = -1;
+        for (int i = count - 1; i >= 0; i--) {
+            if (values[i] > mThumbs.get(i).getValue() && assignThumbValue(i, values[i])) {
+                firstChanged = i;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (values[i] < mThumbs.get(i).getValue() && assignThumbValue(i, values[i])
+                    && (firstChanged < 0 || i < firstChanged)) {
+                firstChanged = i;
+            }
+        }
+        if (firstChanged >= 0) {
+            updateThumb(mThumbs.get(firstChanged), getWidth(), getHeight());
+        }
+    }
+
+    /**
+     * Like {@link #setThumbValue(Thumb, int, boolean)} but leaves placing the thumb to the caller
+     *
+     * @return true if the thumb value changed
+     */
+    private boolean assignThumbValue(int thumbIndex, int value) {
+        final Thumb thumb = mThumbs.get(thumbIndex);
+        if (thumb.getThumb() == null) return false;
+        value = optThumbValue(thumb, value);
+        if (value == thumb.value) return false;
+        thumb.value = value;
+        if (hasOnThumbValueChangeListener() || hasOnThumbValuesChangeListener()) {
+            notifyValueChanged(thumb, thumbIndex);
+        }
+        return true;
+    }
+
+    /**
+     * Records the values once the user released all the thumbs and none of them is flinging
+     */
+    private void commitPendingHistory() {
+        if (mHistoryPending && mDraggingThumbs.isEmpty()
+                && (mFlinger == null || !mFlinger.isFlinging())) {
+            recordHistory();
+        }
+    }
+
+    /**
+     * @return min time in ms between accessibility events for thumb changes
+     */
+    public long getAccessibilityEventInterval() {
+        return mAccessibilityEventInterval;
+    }
+
+    /**
+     * Limits how often thumb changes are reported to accessibility services, so a drag does
+     * not flood the speech queue. Changes within the interval are reported together with the
+     * latest values, the final value of a drag is always reported when the thumb is released.
+     *
+     * @param accessibilityEventInterval time in ms, 0 to report once per frame
+     */
+    public void setAccessibilityEventInterval(long accessibilityEventInterval) {
+        if (accessibilityEventInterval < 0) accessibilityEventInterval = 0;
+        mAccessibilityEventInterval = accessibilityEventInterval;
+    }
+
+    /**
+     * @return true if the range between two thumbs can be dragged
+     */
+    public boolean isRangeDragEnabled() {
+        return mRangeDragEnabled;
+    }
+
+    /**
+     * If enabled touching the range between two thumbs (but not the thumbs themselves) moves
+     * both thumbs together keeping the distance between them.
+     *
+     * @param rangeDragEnabled true to enable dragging of ranges
+     */
+    public void setRangeDragEnabled(boolean rangeDragEnabled) {
+        this.mRangeDragEnabled = rangeDragEnabled;
+    }
+
+    /**
+     * @return true if thumbs will be not be drawn on top of each other even in have the same
+     * values, false otherwise
+     */
+    public boolean isDrawThumbsApart() {
+        return mDrawThumbsApart;
+    }
+
+    /**
+     * @param drawThumbsApart if set to true thumbs will be not be drawn on top of each other
+     *                        even in have the same values.
+     */
+    public void setDrawThumbsApart(boolean drawThumbsApart) {
+        this.mDrawThumbsApart = drawThumbsApart;
+    }
+
+    private void initMultiSlider(int numThumbs) {
+        mStep = 1;
+        mStepsThumbsApart = 0;
+        mDrawThumbsApart = false;
+        mScaleMin = 0;
+        mScaleMax = 100;
+        mMinWidth = 24;
+        mMaxWidth = 48;
+        mMinHeight = 24;
+        mMaxHeight = 48;
+
+        for (int i = 0; i < numThumbs; i++) {
+            mThumbs.add(new Thumb().setMin(mScaleMin).setMax(mScaleMax).setTag("thumb " + i));
+        }
+    }
+
+    /**
+     * Re-sets the number of thumbs and reposition the thumbs
+     *
+     * @param numThumbs the new number of thumbs
+     * @return the MultiSlider
+     */
+    public MultiSlider setNumberOfThumbs(int numThumbs) {
+        return setNumberOfThumbs(numThumbs, true);
+    }
+
+    /**
+     * Re-sets the number of thumbs
+     *
+     * @param numThumbs the new number of thumbs
+     * @param repositon if true it will reposition the thumbs to be equally distributed across the
+     *                  scale, otherwise all thumbs will be positioned at 0
+     * @return the MultiSlider
+     */
+    public MultiSlider setNumberOfThumbs(int numThumbs, boolean repositon) {
+        beginBatchEdit();
+        try {
+            clearThumbs();
+            for (int i = 0; i < numThumbs; i++) {
+                addThumb(0);
+            }
+
+            if (repositon) {
+                repositionThumbs();
+            }
+        } finally {
+            endBatchEdit();
+        }
+
+        return this;
+    }
+
+    /**
+     * Applies the scale and thumbs of a model, e.g. when a list row with a slider is bound.
+     * <p/>
+     * Unlike {@link #setNumberOfThumbs(int)} the existing thumbs and their drawables are reused,
+     * thumbs are only added or removed at the end, and removed ones are kept for later binds.
+     * All the values and limits are applied in one pass, the thumbs are placed once and a
+     * layout is requested only if the padding has to grow for new thumbs.
+     * Bound thumbs are enabled and visible. Value listeners are called for the thumbs which
+     * value changed, in one batch.
+     *
+     * @param model the model to apply
+     */
+    public void bind(Model model) {
+        final int scaleMin = model.getScaleMin();
+        final int scaleMax = model.getScaleMax();
+        if (scaleMax < scaleMin) {
+            throw new IllegalArgumentException(String.format("bind() scaleMax(%d) < scaleMin(%d)",
+                    scaleMax, scaleMin));
+        }
+        resetInteraction();
+        beginBatchEdit();
+        try {
+            boolean changed = scaleMin != mScaleMin || scaleMax != mScaleMax;
+            mScaleMin = scaleMin;
+            mScaleMax = scaleMax;
+            updateKeyProgressIncrement();
+
+            final int count = model.getThumbCount();
+            changed |= setThumbCount(count);
+            final boolean notify = hasOnThumbValueChangeListener()
+                    || hasOnThumbValuesChangeListener();
+            int prevValue = 0;
+            int i = 0;
+            for (Thumb thumb : mThumbs) {
+                int oldValue = thumb.value;
+                prevValue = applyThumbState(thumb, i, prevValue, model.getThumbValue(i),
+                        Math.max(scaleMin, model.getThumbMin(i)),
+                        Math.min(scaleMax, model.getThumbMax(i)), true, false, notify);
+                changed |= prevValue != oldValue;
+                i++;
+            }
+            if (mFocusedThumb >= count) {
+                mFocusedThumb = Math.max(0, count - 1);
+            }
+            if (changed && count > 0) {
+                updateThumb(mThumbs.getFirst(), getWidth(), getHeight());
+            }
+            if (changed) {
+                invalidate();
+            }
+        } finally {
+            endBatchEdit();
+        }
+    }
+
+    /**
+     * Stops any ongoing interaction, e.g. when a list row with a slider is recycled, so a drag,
+     * fling or key repeat does not carry over to the next {@link #bind(Model)}.
+     * The thumbs are kept for reuse.
+     */
+    public void unbind() {
+        resetInteraction();
+        clearHistory();
+    }
+
+    private void resetInteraction() {
+        stopFling();
+        if (mKeyUpdatePosted) {
+            removeCallbacks(mKeyUpdate);
+            mKeyUpdatePosted = false;
+            mKeyThumb = null;
+        }
+        //the tracking listeners get the stop of each start they got
+        if (!mDraggingThumbs.isEmpty()) {
+            onStopTrackingTouch();
+        }
+        if (mRangeDragIndex >= 0) {
+            stopRangeDrag();
+        }
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        mHistoryPending = false;
+        if (isPressed()) {
+            setPressed(false);
+        }
+    }
+
+    /**
+     * Add a thumb to the Slider after the last thumb
+     *
+     * @param thumb Thumb instance in the context of the Slider
+     * @return true if the thumb was added and Slider modified
+     */
+    public boolean addThumb(Thumb thumb) {
+        return addThumbOnPos(thumb, mThumbs.size());
+    }
+
+    /**
+     * Add a thumb to the Slider at a custom position
+     *
+     * @param thumb thumb instance in the context of the Slider
+     * @param pos   the position at which the thumb should be added
+     * @return true if the thumb was added and Slider modified
+     */
+    public boolean addThumbOnPos(Thumb thumb, int pos) {
+        if (mThumbs.contains(thumb)) {
+            return false;
+        }
+        if (thumb.getThumb() == null) {
+            setThumbDrawable(thumb, defThumbDrawable, defThumbColor);
+        }
+        int paddingLeft = Math.max(getPaddingLeft(), thumb.getThumbOffset());
+        int paddingRight = Math.max(getPaddingRight(), thumb.getThumbOffset());
+        setPadding(paddingLeft, getPaddingTop(), paddingRight, getPaddingBottom());
+
+        if (thumb.getRange() == null) {
+            setRangeDrawable(thumb, defRangeDrawable, defRangeColor);
+        }
+        stopFling();
+        mThumbs.add(pos, thumb);
+        if (!setThumbValue(thumb, thumb.value, false)) {
+            //the new thumb still needs to be placed
+            updateThumb(thumb, getWidth(), getHeight());
+        }
+        return true;
+    }
+
+    /**
+     * Add a thumb with predefined value to the slider after the last thumb
+     *
+     * @param value the initial thumb value
+     * @return the Thumb instance that was added
+     */
+    public Thumb addThumb(int value) {
+        Thumb thumb = new Thumb();
+        this.addThumb(thumb);
+        thumb.setValue(value);
+
+        return thumb;
+    }
+
+    /**
+     * Add a thumb to the slider after the last thumb with value to the maximum scale value
+     *
+     * @return the Thumb instance that was added
+     */
+    public Thumb addThumb() {
+        Thumb thumb = new Thumb();
+        this.addThumb(thumb);
+        return thumb;
+    }
+
+    /**
+     * Add a thumb to the Slider at a custom position
+     *
+     * @param pos   the position at which the thumb should be added
+     * @param value the initial thumb value
+     * @return the Thumb instance that was added
+     */
+    public Thumb addThumbOnPos(int pos, int value) {
+        Thumb thumb = new Thumb();
+        this.addThumbOnPos(thumb, pos);
+        thumb.setValue(value);
+
+        return thumb;
+    }
+
+    /**
+     * Add a thumb to the Slider at a custom position
+     *
+     * @param pos the position at which the thumb should be added
+     * @return the Thumb instance that was added
+     */
+    public Thumb addThumbOnPos(int pos) {
+        Thumb thumb = new Thumb();
+        this.addThumbOnPos(thumb, pos);
+        return thumb;
+    }
+
+
+    /**
+     * Remove a thumb from the Slider
+     *
+     * @param thumb humb instance in the context of the Slider
+     * @return true if the thumb was found and removed
+     */
+    public boolean removeThumb(Thumb thumb) {
+        stopFling();
+        mDraggingThumbs.remove(thumb);
+        boolean res = mThumbs.remove(thumb);
+        invalidate();
+        return res;
+    }
+
+    /**
+     * Remove a thumb from the Slider identified by its position
+     *
+     * @param thumbIndex the thumb position starting from 0
+     * @return true if the thumb was found and removed
+     */
+    public Thumb removeThumb(int thumbIndex) {
+        stopFling();
+        mDraggingThumbs.remove(mThumbs.get(thumbIndex));
+        invalidate();
+        Thumb res = mThumbs.remove(thumbIndex);
+        invalidate();
+        return res;
+    }
+
+    /**
+     * Removes all the thumbs in the Slider
+     */
+    public void clearThumbs() {
+        stopFling();
+        mThumbs.clear();
+        mDraggingThumbs.clear();
+        invalidate();
+    }
+
+    /**
+     * set default thumb offset, which will be immediately applied to all the thumbs
+     *
+     * @param thumbOffset thumb offset in pixels
+     */
+    public void setThumbOffset(int thumbOffset) {
+        for (Thumb thumb : mThumbs) {
+            thumb.setThumbOffset(thumbOffset);
+        }
+        invalidate();
+    }
+
+    /**
+     * Manually set the track drawable
+     *
+     * @param d
+     */
+    public void setTrackDrawable(Drawable d) {
+        boolean needUpdate;
         if (mTrack != null && d != mTrack) {
             mTrack.setCallback(null);
             needUpdate = true;
@@ -794,6 +1722,8 @@ public class MultiSlider extends View {
 
     private int optThumbValue(Thumb thumb, int value) {
         if (thumb == null || thumb.getThumb() == null) return value;
+        final boolean trace = sTracingEnabled;
+        if (trace) TraceCompat.beginSection(TRACE_OPT_VALUE);
         int currIdx = mThumbs.indexOf(thumb);
 
 
@@ -819,37 +1749,47 @@ public class MultiSlider extends View {
             value = thumb.getMax();
         }
 
+        if (trace) TraceCompat.endSection();
         return value;
     }
 
 
     /**
-     * Refreshes the value for the specific thumb
+     * Refreshes the value for the specific thumb.
+     * If the value after applying the constraints is the same as the current one nothing is
+     * updated and the listener is not called.
      *
      * @param thumb    the thumb which value is going to be changed
      * @param value    the new value
      * @param fromUser if the request is coming from the user or the client
+     * @return true if the thumb value changed
      */
-    private synchronized void setThumbValue(Thumb thumb, int value, boolean fromUser) {
-        if (thumb == null || thumb.getThumb() == null) return;
+    private synchronized boolean setThumbValue(Thumb thumb, int value, boolean fromUser) {
+        if (thumb == null || thumb.getThumb() == null) return false;
+        final boolean trace = sTracingEnabled;
+        if (trace) TraceCompat.beginSection(TRACE_SET_VALUE);
 
         value = optThumbValue(thumb, value);
 
-        if (value != thumb.getValue()) {
-            thumb.value = value;
+        if (value == thumb.getValue()) {
+            if (trace) TraceCompat.endSection();
+            return false;
         }
-        if (hasOnThumbValueChangeListener()) {
-            mOnThumbValueChangeListener.onValueChanged(this, thumb, mThumbs.indexOf(thumb), thumb
-                    .getValue());
+        thumb.value = value;
+        if (hasOnThumbValueChangeListener() || hasOnThumbValuesChangeListener()) {
+            notifyValueChanged(thumb, mThumbs.indexOf(thumb));
         }
         updateThumb(thumb, getWidth(), getHeight());
+        if (trace) TraceCompat.endSection();
+        return true;
     }
 
-    private synchronized void setThumbValue(int thumb, int value, boolean fromUser) {
-        setThumbValue(mThumbs.get(thumb), value, fromUser);
+    private synchronized boolean setThumbValue(int thumb, int value, boolean fromUser) {
+        return setThumbValue(mThumbs.get(thumb), value, fromUser);
     }
 
     private void updateTrackBounds(int w, int h) {
+        if (mMetrics != null) mMetrics.geometryUpdates++;
         // onDraw will translate the canvas so we draw starting at 0,0.
         // Subtract out padding for the purposes of the calculations below.
         w -= getPaddingRight() + getPaddingLeft();
@@ -882,7 +1822,8 @@ public class MultiSlider extends View {
      * @param thumb Drawable representing the thumb
      */
     private void setThumbDrawables(Drawable thumb, Drawable range,
-                                   Drawable range1, Drawable range2) {
+                                   Drawable range1, int range1Color,
+                                   Drawable range2, int range2Color) {
         if (thumb == null) return;
         Drawable rangeDrawable;
 
@@ -899,10 +1840,10 @@ public class MultiSlider extends View {
             }
             if (curr == 1 && range1 != null) {
                 rangeDrawable = range1;
-                rCol = a.getColor(io.apptik.widget.mslider.R.styleable.MultiSlider_range1Color, 0);
+                rCol = range1Color;
             } else if (curr == 2 && range2 != null) {
                 rangeDrawable = range2;
-                rCol = a.getColor(io.apptik.widget.mslider.R.styleable.MultiSlider_range2Color, 0);
+                rCol = range2Color;
             } else {
                 rangeDrawable = range;
                 rCol = defRangeColor;
@@ -917,7 +1858,7 @@ public class MultiSlider extends View {
 
     private void setThumbDrawable(Thumb thumb, Drawable thumbDrawable, int thumbColor) {
         requireNonNull(thumbDrawable);
-        Drawable nThumbDrawable = getTintedDrawable(thumbDrawable.getConstantState().newDrawable(),
+        Drawable nThumbDrawable = getTintedDrawable(newDrawable(thumbDrawable.getConstantState()),
                 thumbColor);
         nThumbDrawable.setCallback(this);
 
@@ -959,6 +1900,13 @@ public class MultiSlider extends View {
         return mThumbs.get(pos);
     }
 
+    /**
+     * @return the number of thumbs in the Slider
+     */
+    public int getThumbCount() {
+        return mThumbs.size();
+    }
+
     /**
      * Sets the amount of progress changed via the arrow keys.
      *
@@ -1015,27 +1963,37 @@ public class MultiSlider extends View {
 
         if (max != mScaleMax) {
             mScaleMax = max;
+            beginBatchEdit();
+            try {
+                //check for thumbs out of bounds and adjust the max for those exceeding the new
+                //one
+                for (Thumb thumb : mThumbs) {
+                    if (extendMaxForThumbs) {
+                        thumb.setMax(max);
+                    } else if (thumb.getMax() > max) {
+                        thumb.setMax(max);
+                    }
 
-            //check for thumbs out of bounds and adjust the max for those exceeding the new one
-            for (Thumb thumb : mThumbs) {
-                if (extendMaxForThumbs) {
-                    thumb.setMax(max);
-                } else if (thumb.getMax() > max) {
-                    thumb.setMax(max);
-                }
-
-                if (thumb.getValue() > max) {
-                    setThumbValue(thumb, max, false);
+                    if (thumb.getValue() > max) {
+                        setThumbValue(thumb, max, false);
+                    }
                 }
-
-
+                if (repositionThumbs)
+                    repositionThumbs();
+            } finally {
+                endBatchEdit();
             }
-            if (repositionThumbs)
-                repositionThumbs();
-
             postInvalidate();
         }
 
+        updateKeyProgressIncrement();
+    }
+
+    public int getMax() {
+        return mScaleMax;
+    }
+
+    private void updateKeyProgressIncrement() {
         if ((mKeyProgressIncrement == 0) || (mScaleMax / mKeyProgressIncrement > 20)) {
             // It will take the user too long to change this via keys, change it
             // to something more reasonable
@@ -1043,10 +2001,6 @@ public class MultiSlider extends View {
         }
     }
 
-    public int getMax() {
-        return mScaleMax;
-    }
-
     /**
      * Set global minimum value and apply it to all thumbs
      *
@@ -1081,31 +2035,29 @@ public class MultiSlider extends View {
 
         if (min != mScaleMin) {
             mScaleMin = min;
+            beginBatchEdit();
+            try {
+                //check for thumbs out of bounds and adjust the min for those below the new one
+                for (Thumb thumb : mThumbs) {
+                    if (extendMinForThumbs) {
+                        thumb.setMin(min);
+                    } else if (thumb.getMin() < min) {
+                        thumb.setMin(min);
+                    }
 
-            //check for thumbs out of bounds and adjust the max for those exceeding the new one
-            for (Thumb thumb : mThumbs) {
-                if (extendMinForThumbs) {
-                    thumb.setMin(min);
-                } else if (thumb.getMin() < min) {
-                    thumb.setMin(min);
-                }
-
-                if (thumb.getValue() < min) {
-                    setThumbValue(thumb, min, false);
+                    if (thumb.getValue() < min) {
+                        setThumbValue(thumb, min, false);
+                    }
                 }
-
+                if (repositionThumbs)
+                    repositionThumbs();
+            } finally {
+                endBatchEdit();
             }
-            if (repositionThumbs)
-                repositionThumbs();
-
             postInvalidate();
         }
 
-        if ((mKeyProgressIncrement == 0) || (mScaleMax / mKeyProgressIncrement > 20)) {
-            // It will take the user too long to change this via keys, change it
-            // to something more reasonable
-            setKeyProgressIncrement(Math.max(1, Math.round((float) mScaleMax / 20)));
-        }
+        updateKeyProgressIncrement();
     }
 
 
@@ -1142,23 +2094,13 @@ public class MultiSlider extends View {
                 for (Thumb thumb : mThumbs) {
                     if (!mDraggingThumbs.contains(thumb) && thumb.getThumb() != null && thumb
                             .getThumb().isStateful()) {
-                        if (thumb.isEnabled()) {
-                            thumb.getThumb().setState(new int[]{android.R.attr.state_enabled,
-                                    -android.R.attr.state_pressed});
-                        } else {
-                            thumb.getThumb().setState(new int[]{-android.R.attr.state_enabled});
-                        }
+                        thumb.getThumb().setState(getIdleThumbState(thumb));
                     }
                 }
             } else {
                 for (Thumb thumb : mThumbs) {
                     if (thumb.getThumb() != null && thumb.getThumb().isStateful()) {
-                        if (thumb.isEnabled()) {
-                            thumb.getThumb().setState(new int[]{android.R.attr.state_enabled,
-                                    -android.R.attr.state_pressed});
-                        } else {
-                            thumb.getThumb().setState(new int[]{-android.R.attr.state_enabled});
-                        }
+                        thumb.getThumb().setState(getIdleThumbState(thumb));
                     }
                 }
             }
@@ -1168,6 +2110,20 @@ public class MultiSlider extends View {
     }
 
 
+    /**
+     * @return drawable state for a thumb that is not being dragged
+     */
+    private int[] getIdleThumbState(Thumb thumb) {
+        if (!thumb.isEnabled()) {
+            return new int[]{-android.R.attr.state_enabled};
+        }
+        if (isFocused() && getFocusedThumb() == thumb) {
+            return new int[]{android.R.attr.state_enabled, android.R.attr.state_focused,
+                    -android.R.attr.state_pressed};
+        }
+        return new int[]{android.R.attr.state_enabled, -android.R.attr.state_pressed};
+    }
+
     /**
      * Updates Thumb drawable position according to the new w,h
      *
@@ -1176,12 +2132,15 @@ public class MultiSlider extends View {
      * @param h     height
      */
     private void updateThumb(Thumb thumb, int w, int h) {
+        final boolean trace = sTracingEnabled;
+        if (trace) TraceCompat.beginSection(TRACE_UPDATE_THUMB);
+        if (mMetrics != null) mMetrics.geometryUpdates++;
         int thumbHeight = thumb == null ? 0 : thumb.getThumb().getIntrinsicHeight();
         // The max height does not incorporate padding, whereas the height
         // parameter does
         int trackHeight = h - getPaddingTop() - getPaddingBottom();
 
-        float scale = getScaleSize() > 0 ? (float) thumb.getValue() / (float) getScaleSize() : 0;
+        float scale = getScaleSize() > 0 ? (float) getDrawValue(thumb) / (float) getScaleSize() : 0;
 
         Drawable prevThumb = null;
         int currIdx = mThumbs.indexOf(thumb);
@@ -1219,14 +2178,62 @@ public class MultiSlider extends View {
         //update thumbs after it
         for (int i = currIdx + 1; i < mThumbs.size(); i++) {
             int gap = (trackHeight - thumbHeight) / 2;
-            scale = getScaleSize() > 0 ? (float) mThumbs.get(i).getValue() / (float) getScaleSize
-                    () : 0;
+            scale = getScaleSize() > 0 ? (float) getDrawValue(mThumbs.get(i)) / (float)
+                    getScaleSize() : 0;
             setThumbPos(w, h, mThumbs.get(i).getThumb(), mThumbs.get(i - 1).getThumb(), mThumbs
                             .get(i).getRange(), scale, gap, mThumbs.get(i).getThumbOffset(),
                     getThumbOptOffset(mThumbs.get(i)));
         }
+        notifyAccessibilityChange();
+        if (trace) TraceCompat.endSection();
+    }
+
+
+    /**
+     * @return the value at which the thumb is drawn, which is the predicted one while dragging
+     * with prediction or the actual thumb value otherwise
+     */
+    //package-private for the tests
+    int getDrawValue(Thumb thumb) {
+        return thumb.predictedValue != NO_PREDICTION ? thumb.predictedValue : thumb.getValue();
+    }
+
+    /**
+     * Feeds the pointer samples of the event to the thumb predictor and redraws the thumb at the
+     * predicted position if it changed.
+     */
+    private void updatePrediction(MotionEvent event, int pointerIndex, Thumb thumb) {
+        if (mPredictionHorizon <= 0 || thumb == null || thumb.getThumb() == null
+                || pointerIndex >= event.getPointerCount()) return;
+        if (thumb.predictor == null) {
+            thumb.predictor = new MotionPredictor();
+        }
+        final int historySize = event.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            thumb.predictor.addSample(event.getHistoricalEventTime(h),
+                    event.getHistoricalX(pointerIndex, h));
+        }
+        thumb.predictor.addSample(event.getEventTime(), event.getX(pointerIndex));
+
+        int predicted = optThumbValue(thumb,
+                getValue((int) thumb.predictor.predict(mPredictionHorizon), thumb));
+        if (predicted != getDrawValue(thumb)) {
+            thumb.predictedValue = predicted;
+            updateThumb(thumb, getWidth(), getHeight());
+        }
     }
 
+    private void clearPrediction(Thumb thumb) {
+        if (thumb.predictor != null) {
+            thumb.predictor.reset();
+        }
+        if (thumb.predictedValue != NO_PREDICTION) {
+            thumb.predictedValue = NO_PREDICTION;
+            if (thumb.getThumb() != null) {
+                updateThumb(thumb, getWidth(), getHeight());
+            }
+        }
+    }
 
     /**
      * @param gap If set to {@link Integer#MIN_VALUE}, this will be ignored and
@@ -1258,6 +2265,7 @@ public class MultiSlider extends View {
                 available - thumbPos + optThumbOffset : thumbPos + optThumbOffset;
 
         thumb.setBounds(thumbStart, topBound, thumbStart + thumbWidth, bottomBound);
+        mThumbCentersValid = false;
 
         int bottom = h - getPaddingTop() + getPaddingBottom();
 
@@ -1281,6 +2289,9 @@ public class MultiSlider extends View {
 
     @Override
     protected synchronized void onDraw(Canvas canvas) {
+        final boolean trace = sTracingEnabled;
+        if (trace) TraceCompat.beginSection(TRACE_DRAW);
+        final long drawStart = (mMetrics != null) ? System.nanoTime() : 0;
         super.onDraw(canvas);
         int paddingStart;
         if (Build.VERSION.SDK_INT >= 17) {
@@ -1319,10 +2330,16 @@ public class MultiSlider extends View {
                 canvas.restore();
             }
         }
+        if (mMetrics != null) {
+            mMetrics.recordDraw(System.nanoTime() - drawStart);
+        }
+        if (trace) TraceCompat.endSection();
     }
 
     @Override
     protected synchronized void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final boolean trace = sTracingEnabled;
+        if (trace) TraceCompat.beginSection(TRACE_MEASURE);
 
         int maxThumbHeight = 0;
         int maxRangeHeight = 0;
@@ -1347,6 +2364,7 @@ public class MultiSlider extends View {
 
         setMeasuredDimension(resolveSizeAndState(dw, widthMeasureSpec, 0),
                 resolveSizeAndState(dh, heightMeasureSpec, 0));
+        if (trace) TraceCompat.endSection();
     }
 
 
@@ -1383,42 +2401,122 @@ public class MultiSlider extends View {
      */
     private LinkedList<Thumb> getClosestThumb(int x) {
         LinkedList<Thumb> exact = new LinkedList<Thumb>();
-        Thumb closest = null;
-        int currDistance = getAvailable() + 1;
-
-        for (Thumb thumb : mThumbs) {
-            if (thumb.getThumb() == null || !thumb.isEnabled()
-                    || mDraggingThumbs.contains(thumb)) continue;
-
-            int minV = x - thumb.getThumb().getIntrinsicWidth();
-            int maxV = x + thumb.getThumb().getIntrinsicWidth();
-            if (thumb.getThumb().getBounds().centerX() >= minV && thumb.getThumb().getBounds()
-                    .centerX() <= maxV) {
-                //we have exact match
-                // we add them all so we can choose later which one to move
+        final int[] centers = getThumbCenters();
+        final int count = mThumbs.size();
+        final int idx = findClosestThumbIndex(x);
+        if (idx < 0) return exact;
+
+        //we have exact match(es) around the closest center
+        // we add them all so we can choose later which one to move
+        int first = idx;
+        while (first > 0 && isExactTouch(first - 1, x, centers)) {
+            first--;
+        }
+        for (int i = first; i < count; i++) {
+            if (i > idx && !isExactTouch(i, x, centers)) break;
+            Thumb thumb = mThumbs.get(i);
+            if (isExactTouch(i, x, centers) && isTouchable(thumb)) {
                 exact.add(thumb);
-            } else if (Math.abs(thumb.getThumb().getBounds().centerX() - x) <= currDistance) {
-                if (Math.abs(thumb.getThumb().getBounds().centerX() - x) == currDistance) {
-                    if (x > getWidth() / 2) {
-                        //left one(s) has more place to move
-                        closest = thumb;
-                    } else {
-                        //right one(s) has more place to move
+            }
+        }
+        if (!exact.isEmpty()) return exact;
+
+        //otherwise the closest touchable thumb, searching outwards from the closest center
+        int left = idx;
+        int right = idx + 1;
+        while (left >= 0 || right < count) {
+            int leftDistance = left >= 0 ? Math.abs(centers[left] - x) : Integer.MAX_VALUE;
+            int rightDistance = right < count ? Math.abs(centers[right] - x) : Integer.MAX_VALUE;
+            boolean takeLeft;
+            if (leftDistance == rightDistance) {
+                //the thumb on the side with more room to move
+                takeLeft = x <= getWidth() / 2;
+            } else {
+                takeLeft = leftDistance < rightDistance;
+            }
+            int i = takeLeft ? left-- : right++;
+            Thumb thumb = mThumbs.get(i);
+            if (isTouchable(thumb)) {
+                exact.add(thumb);
+                break;
+            }
+        }
+        return exact;
+    }
 
-                    }
+    private boolean isTouchable(Thumb thumb) {
+        return thumb.getThumb() != null && thumb.isEnabled() && !mDraggingThumbs.contains(thumb);
+    }
+
+    private boolean isExactTouch(int thumbIndex, int x, int[] centers) {
+        return Math.abs(centers[thumbIndex] - x) <= mThumbWidths[thumbIndex];
+    }
+
+    /**
+     * @return the horizontal centers of the thumbs in thumb order, rebuilt together with the
+     * thumb widths only after thumbs moved or the number of thumbs changed
+     */
+    private int[] getThumbCenters() {
+        final int count = mThumbs.size();
+        if (!mThumbCentersValid || mThumbCentersCount != count) {
+            if (mThumbCenters.length < count) {
+                mThumbCenters = new int[Math.max(count, mThumbCenters.length * 2)];
+                mThumbWidths = new int[mThumbCenters.length];
+            }
+            int i = 0;
+            int firstDrawn = -1;
+            for (Thumb thumb : mThumbs) {
+                Drawable d = thumb.getThumb();
+                if (d == null) {
+                    //a thumb without drawable cannot be touched, it takes the center of the
+                    //previous thumb so the centers stay ordered for the binary search
+                    mThumbCenters[i] = i > 0 ? mThumbCenters[i - 1] : 0;
+                    mThumbWidths[i] = -1;
                 } else {
-                    if (thumb.getThumb() != null) {
-                        currDistance = Math.abs(thumb.getThumb().getBounds().centerX() - x);
-                        closest = thumb;
-                    }
+                    mThumbCenters[i] = d.getBounds().centerX();
+                    mThumbWidths[i] = d.getIntrinsicWidth();
+                    if (firstDrawn < 0) firstDrawn = i;
                 }
+                i++;
             }
+            //leading thumbs without drawable take the center of the first drawn one
+            for (int j = 0; j < firstDrawn; j++) {
+                mThumbCenters[j] = mThumbCenters[firstDrawn];
+            }
+            mThumbCentersCount = count;
+            mThumbCentersValid = true;
         }
+        return mThumbCenters;
+    }
 
-        if (exact.isEmpty() && closest != null) {
-            exact.add(closest);
+    /**
+     * Binary search over the thumb centers, which are ordered left to right, or right to left
+     * when mirrored.
+     *
+     * @param x position in the drawable coordinates
+     * @return the index of the thumb which center is closest to x or -1 if there are no thumbs
+     */
+    //package-private for the benchmarks
+    int findClosestThumbIndex(int x) {
+        final int[] centers = getThumbCenters();
+        final int count = mThumbs.size();
+        if (count == 0) return -1;
+        final boolean descending = centers[0] > centers[count - 1];
+        int low = 0;
+        int high = count - 1;
+        //find the first center at or after x in the thumbs order
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (descending ? centers[mid] > x : centers[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
-        return exact;
+        if (low > 0 && Math.abs(centers[low - 1] - x) <= Math.abs(centers[low] - x)) {
+            return low - 1;
+        }
+        return low;
     }
 
     private Thumb getMostMovable(LinkedList<Thumb> thumbs, MotionEvent event) {
@@ -1454,15 +2552,61 @@ public class MultiSlider extends View {
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        if (mGestureRecorder != null) {
+            mGestureRecorder.record(this, event);
+        }
         if (!mIsUserSeekable || !isEnabled()) {
             return false;
         }
+        final boolean trace = sTracingEnabled;
+        if (trace) TraceCompat.beginSection(TRACE_TOUCH);
+        //all the thumbs moved by one event are reported as one change
+        beginBatchEdit();
+        try {
+            handleTouchEvent(event);
+        } finally {
+            endBatchEdit();
+        }
+        if (mHistory != null) {
+            if (mHistoryInterval > 0 && !mDraggingThumbs.isEmpty()
+                    && event.getEventTime() - mHistoryLastRecordTime >= mHistoryInterval) {
+                mHistoryLastRecordTime = event.getEventTime();
+                recordHistory();
+            }
+            commitPendingHistory();
+        }
+        if (trace) TraceCompat.endSection();
+        return true;
+    }
+
+    private void handleTouchEvent(MotionEvent event) {
         final int xx = Math.round(event.getX());
         final int yy = Math.round(event.getY());
 
         int pointerIdx = event.getActionIndex();
 
+        if (needsVelocity()) {
+            if (mVelocityTracker == null) {
+                mVelocityTracker = VelocityTracker.obtain();
+            }
+            mVelocityTracker.addMovement(event);
+            if (event.getActionMasked() == MotionEvent.ACTION_MOVE) {
+                mVelocityTracker.computeCurrentVelocity(1000);
+            }
+        }
+
+        if (mRangeDragIndex >= 0 || (event.getActionMasked() == MotionEvent.ACTION_DOWN
+                && mRangeDragEnabled && findRangeDrag(event.getX()))) {
+            onRangeDragEvent(event);
+            recycleVelocityTracker(event);
+            return;
+        }
+
         Thumb currThumb = null;
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            //catch the flinging thumbs
+            stopFling();
+        }
         if (event.getActionMasked() == MotionEvent.ACTION_DOWN
                 || event.getActionMasked() == MotionEvent.ACTION_POINTER_DOWN) {
             LinkedList<Thumb> closestOnes =
@@ -1518,6 +2662,7 @@ public class MultiSlider extends View {
                 } else {
                     onStartTrackingTouch(currThumb);
                     setThumbValue(currThumb, getValue(event, currThumb), true);
+                    startPrecisionDrag(currThumb, event.getX(pointerIdx));
                     setHotspot(xx, yy, currThumb);
                 }
                 break;
@@ -1530,8 +2675,9 @@ public class MultiSlider extends View {
                                 != null) {
                             invalidate(mDraggingThumbs.get(i).getThumb().getBounds());
                         }
-                        setThumbValue(mDraggingThumbs.get(i), getValue(event, i, mDraggingThumbs
-                                .get(i)), true);
+                        setThumbValue(mDraggingThumbs.get(i), getDragValue(event, i,
+                                mDraggingThumbs.get(i)), true);
+                        updatePrediction(event, i, mDraggingThumbs.get(i));
 
 
                     }
@@ -1541,7 +2687,20 @@ public class MultiSlider extends View {
                     if (Math.abs(x - mTouchDownX) > mScaledTouchSlop) {
                         onStartTrackingTouch(currThumb);
                         exactTouched = null;
-                        setThumbValue(currThumb, getValue(event, currThumb), true);
+                        if (mPrecisionDragEnabled && currThumb != null) {
+                            //start where the finger went down, the slop is dragged like any
+                            //other move so a slow start keeps its precision
+                            setThumbValue(currThumb, getValue((int) mTouchDownX, currThumb),
+                                    true);
+                            startPrecisionDrag(currThumb, mTouchDownX);
+                            setThumbValue(currThumb, getDragValue(event, pointerIdx, currThumb),
+                                    true);
+                        } else {
+                            setThumbValue(currThumb, getValue(event, currThumb), true);
+                            startPrecisionDrag(currThumb, x);
+                        }
+                        //the samples of this move already give a velocity
+                        updatePrediction(event, pointerIdx, currThumb);
                         setHotspot(xx, yy, currThumb);
                     }
                 }
@@ -1552,13 +2711,20 @@ public class MultiSlider extends View {
                 //there are other pointers left
             case MotionEvent.ACTION_POINTER_UP:
                 if (currThumb != null) {
-                    setThumbValue(currThumb, getValue(event, currThumb), true);
+                    if (mPrecisionDragEnabled && mDraggingThumbs.contains(currThumb)) {
+                        //keep the fine value of the drag instead of the one under the finger
+                        setThumbValue(currThumb, getDragValue(event, pointerIdx, currThumb),
+                                true);
+                    } else {
+                        setThumbValue(currThumb, getValue(event, currThumb), true);
+                    }
                     setHotspot(xx, yy, currThumb);
                     if (!isPressed()) {
                         setPressed(true);
                     }
 
                     onStopTrackingTouch(currThumb);
+                    startFling(event, pointerIdx, currThumb);
                 }
                 // ProgressBar doesn't know to repaint the thumb drawable
                 // in its inactive state when the touch stops (because the
@@ -1570,7 +2736,268 @@ public class MultiSlider extends View {
                 invalidate(); // see above explanation
                 break;
         }
-        return true;
+        recycleVelocityTracker(event);
+    }
+
+    private void recycleVelocityTracker(MotionEvent event) {
+        if (mVelocityTracker != null && (event.getActionMasked() == MotionEvent.ACTION_UP
+                || event.getActionMasked() == MotionEvent.ACTION_CANCEL)) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    /**
+     * Looks for a range between two enabled thumbs at x which is not covered by one of them.
+     *
+     * @return true if such range was found and set as the one to be dragged
+     */
+    private boolean findRangeDrag(float x) {
+        if (!mDraggingThumbs.isEmpty()) return false;
+        for (int i = 0; i < mThumbs.size() - 1; i++) {
+            Thumb low = mThumbs.get(i);
+            Thumb high = mThumbs.get(i + 1);
+            if (low.getThumb() == null || high.getThumb() == null || !low.isEnabled()
+                    || !high.isEnabled()) continue;
+            int lowX = low.getThumb().getBounds().centerX();
+            int highX = high.getThumb().getBounds().centerX();
+            //mirrored the low thumb is on the right
+            final boolean mirrored = isLayoutRtl() && mMirrorForRtl;
+            Drawable left = (mirrored ? high : low).getThumb();
+            Drawable right = (mirrored ? low : high).getThumb();
+            int start = Math.min(lowX, highX) + left.getIntrinsicWidth();
+            int end = Math.max(lowX, highX) - right.getIntrinsicWidth();
+            if (x > start && x < end) {
+                mRangeDragIndex = i;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onRangeDragEvent(MotionEvent event) {
+        final float x = event.getX();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mRangeDragStartX = x;
+                mRangeDragStarted = false;
+                if (!isInScrollingContainer()) {
+                    startRangeDrag();
+                }
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (!mRangeDragStarted && Math.abs(x - mRangeDragStartX) > mScaledTouchSlop) {
+                    startRangeDrag();
+                }
+                if (mRangeDragStarted) {
+                    moveRange(x);
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if (mRangeDragStarted) {
+                    moveRange(x);
+                }
+                stopRangeDrag();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                stopRangeDrag();
+                break;
+        }
+    }
+
+    private void startRangeDrag() {
+        Thumb low = mThumbs.get(mRangeDragIndex);
+        Thumb high = mThumbs.get(mRangeDragIndex + 1);
+        mRangeDragStarted = true;
+        mRangeDragStartLow = low.getValue();
+        mRangeDragStartHigh = high.getValue();
+        setPressed(true);
+        if (hasOnTrackingChangeListener()) {
+            dispatchStartTrackingTouch(low);
+            dispatchStartTrackingTouch(high);
+        }
+        attemptClaimDrag();
+    }
+
+    private void stopRangeDrag() {
+        if (mRangeDragStarted && mRangeDragIndex + 1 < mThumbs.size()) {
+            Thumb low = mThumbs.get(mRangeDragIndex);
+            Thumb high = mThumbs.get(mRangeDragIndex + 1);
+            if (hasOnTrackingChangeListener()) {
+                dispatchStopTrackingTouch(low);
+                dispatchStopTrackingTouch(high);
+            }
+            flushAccessibilityChange();
+        }
+        mRangeDragIndex = -1;
+        mRangeDragStarted = false;
+        setPressed(false);
+        invalidate();
+    }
+
+    /**
+     * Shifts both thumbs of the dragged range by the distance from the touch down position.
+     * The shift is constrained for both thumbs at once, so the range keeps its width. Only the
+     * two thumbs and the range after them are laid out again. The
+     * {@link OnThumbValueChangeListener}s get a call for each of the two thumbs, the
+     * {@link OnThumbValuesChangeListener}s one call for both.
+     */
+    private void moveRange(float x) {
+        if (mRangeDragIndex + 1 >= mThumbs.size()) return;
+        Thumb low = mThumbs.get(mRangeDragIndex);
+        Thumb high = mThumbs.get(mRangeDragIndex + 1);
+
+        int delta = getValue((int) x, low) - getValue((int) mRangeDragStartX, low);
+        delta = Math.round((float) delta / mStep) * mStep;
+
+        int minLow = Math.max(low.getMin(), mScaleMin);
+        if (mRangeDragIndex > 0) {
+            minLow = Math.max(minLow, mThumbs.get(mRangeDragIndex - 1).getValue()
+                    + mStepsThumbsApart * mStep);
+        }
+        int maxHigh = Math.min(high.getMax(), mScaleMax);
+        if (mRangeDragIndex + 2 < mThumbs.size()) {
+            maxHigh = Math.min(maxHigh, mThumbs.get(mRangeDragIndex + 2).getValue()
+                    - mStepsThumbsApart * mStep);
+        }
+        int minDelta = Math.max(minLow - mRangeDragStartLow, high.getMin() - mRangeDragStartHigh);
+        int maxDelta = Math.min(maxHigh - mRangeDragStartHigh, low.getMax() - mRangeDragStartLow);
+        if (minDelta > maxDelta) return;
+        delta = Math.max(minDelta, Math.min(maxDelta, delta));
+
+        int newLow = mRangeDragStartLow + delta;
+        int newHigh = mRangeDragStartHigh + delta;
+        if (newLow == low.value && newHigh == high.value) return;
+        low.value = newLow;
+        high.value = newHigh;
+        final int w = getWidth();
+        final int h = getHeight();
+        updateThumbPos(mRangeDragIndex, w, h);
+        updateThumbPos(mRangeDragIndex + 1, w, h);
+        if (mRangeDragIndex + 2 < mThumbs.size()) {
+            //only its range, which starts at the high thumb
+            updateThumbPos(mRangeDragIndex + 2, w, h);
+        }
+        notifyAccessibilityChange();
+        beginBatchEdit();
+        try {
+            notifyValueChanged(low, mRangeDragIndex);
+            notifyValueChanged(high, mRangeDragIndex + 1);
+        } finally {
+            endBatchEdit();
+        }
+    }
+
+    /**
+     * Updates the bounds of one thumb and of its range, unlike {@link #updateThumb} the thumbs
+     * after it and the track are left as they are.
+     */
+    private void updateThumbPos(int thumbIndex, int w, int h) {
+        final Thumb thumb = mThumbs.get(thumbIndex);
+        final Drawable d = thumb.getThumb();
+        if (d == null) return;
+        if (mMetrics != null) mMetrics.geometryUpdates++;
+        final int trackHeight = h - getPaddingTop() - getPaddingBottom();
+        final int gap = Math.max(0, (trackHeight - d.getIntrinsicHeight()) / 2);
+        final float scale = getScaleSize() > 0
+                ? (float) getDrawValue(thumb) / (float) getScaleSize() : 0;
+        final Drawable prevThumb = thumbIndex > 0 ? mThumbs.get(thumbIndex - 1).getThumb() : null;
+        setThumbPos(w, h, d, prevThumb, thumb.getRange(), scale, gap, thumb.getThumbOffset(),
+                getThumbOptOffset(thumb));
+    }
+
+    private boolean needsVelocity() {
+        return mPrecisionDragEnabled || mFlingEnabled;
+    }
+
+    private void startFling(MotionEvent event, int pointerIndex, Thumb thumb) {
+        if (!mFlingEnabled || mVelocityTracker == null) return;
+        final int available = getAvailable();
+        if (available <= 0) return;
+        mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+        float velocity = mVelocityTracker.getXVelocity(event.getPointerId(pointerIndex));
+        if (Math.abs(velocity) < mMinimumFlingVelocity) return;
+        if (isLayoutRtl() && mMirrorForRtl) {
+            velocity = -velocity;
+        }
+        float valuesPerPixel = (float) getScaleSize() / available;
+        if (mFlinger == null) {
+            mFlinger = new ThumbFlinger(new ViewFrameClock(), new ThumbFlinger.Target() {
+                @Override
+                public int onFlingValue(int thumbIndex, int value) {
+                    if (thumbIndex >= mThumbs.size()) return value;
+                    Thumb flingThumb = mThumbs.get(thumbIndex);
+                    setThumbValue(flingThumb, value, true);
+                    return flingThumb.getValue();
+                }
+
+                @Override
+                public void onFlingEnd(int thumbIndex) {
+                    invalidate();
+                    commitPendingHistory();
+                    flushAccessibilityChange();
+                }
+            });
+            mFlinger.setFriction(mFlingFriction);
+        }
+        mFlinger.fling(mThumbs.indexOf(thumb), thumb.getValue(), velocity * valuesPerPixel,
+                mMinimumFlingVelocity * valuesPerPixel, mScaleMin, mStep);
+    }
+
+    private void startPrecisionDrag(Thumb thumb, float x) {
+        if (thumb == null) return;
+        thumb.precisionValue = thumb.getValue();
+        thumb.precisionLastX = x;
+    }
+
+    /**
+     * @return the value a dragged thumb should get for the pointer position, taking the drag
+     * velocity into account if precision dragging is enabled
+     */
+    private int getDragValue(MotionEvent event, int pointerIndex, Thumb thumb) {
+        if (!mPrecisionDragEnabled || mVelocityTracker == null || thumb == null
+                || pointerIndex >= event.getPointerCount()) {
+            return getValue(event, pointerIndex, thumb);
+        }
+        final float x = event.getX(pointerIndex);
+        float velocity = Math.abs(mVelocityTracker.getXVelocity(event.getPointerId(pointerIndex)));
+        float fraction;
+        if (velocity <= mPrecisionSlowVelocity) {
+            fraction = 0;
+        } else if (velocity >= mPrecisionFastVelocity) {
+            fraction = 1;
+        } else {
+            int bucket = (int) ((velocity - mPrecisionSlowVelocity)
+                    / (mPrecisionFastVelocity - mPrecisionSlowVelocity)
+                    * (PRECISION_GAIN_CURVE.length - 1));
+            fraction = PRECISION_GAIN_CURVE[bucket];
+        }
+
+        final int available = getAvailable();
+        if (fraction >= 1 || available <= 0) {
+            thumb.precisionValue = getValue(event, pointerIndex, thumb);
+        } else {
+            float absoluteGain = (float) getScaleSize() / available;
+            float fineGain = Math.min(absoluteGain, mStep);
+            float gain = fineGain + (absoluteGain - fineGain) * fraction;
+            if (Math.abs(thumb.precisionValue - thumb.getValue()) > mStep) {
+                //the last value was constrained by a neighbour, continue from there
+                thumb.precisionValue = thumb.getValue();
+            }
+            float dx = x - thumb.precisionLastX;
+            if (isLayoutRtl() && mMirrorForRtl) {
+                dx = -dx;
+            }
+            thumb.precisionValue += dx * gain;
+            //do not accumulate beyond what the thumb can reach
+            if (thumb.precisionValue < thumb.getPossibleMin()) {
+                thumb.precisionValue = thumb.getPossibleMin();
+            } else if (thumb.precisionValue > thumb.getPossibleMax()) {
+                thumb.precisionValue = thumb.getPossibleMax();
+            }
+        }
+        thumb.precisionLastX = x;
+        return Math.round(thumb.precisionValue);
     }
 
     private int getValue(MotionEvent event, Thumb thumb) {
@@ -1603,12 +3030,16 @@ public class MultiSlider extends View {
     }
 
     private int getValue(MotionEvent event, int pointerIndex, Thumb thumb) {
+        return getValue((int) event.getX(pointerIndex), thumb);
+    }
+
+    //package-private for the benchmarks
+    int getValue(int x, Thumb thumb) {
         final int width = getWidth();
         final int available = getAvailable();
 
         int optThumbOffset = getThumbOptOffset(thumb);
 
-        int x = (int) event.getX(pointerIndex);
         float scale;
         float progress = mScaleMin;
         if (isLayoutRtl() && mMirrorForRtl) {
@@ -1632,114 +3063,617 @@ public class MultiSlider extends View {
             }
         }
 
-        progress += scale * getScaleSize();
+        progress += scale * getScaleSize();
+
+        return Math.round(progress);
+    }
+
+    /**
+     * Tries to claim the user's drag motion, and requests disallowing any
+     * ancestors from stealing events in the drag.
+     */
+    private void attemptClaimDrag() {
+        if (getParent() != null) {
+            getParent().requestDisallowInterceptTouchEvent(true);
+        }
+    }
+
+    /**
+     * This is called when the user has started touching this widget.
+     */
+    void onStartTrackingTouch(Thumb thumb) {
+        if (thumb != null) {
+            mDraggingThumbs.add(thumb);
+            clearPrediction(thumb);
+            if (isPressed()) {
+                drawableStateChanged();
+            } else {
+                setPressed(true);
+            }
+
+            if (thumb.getThumb() != null) {
+                // This may be within the padding region.
+                invalidate(thumb.getThumb().getBounds());
+            }
+            if (hasOnTrackingChangeListener()) {
+                dispatchStartTrackingTouch(thumb);
+            }
+            attemptClaimDrag();
+        }
+    }
+
+    /**
+     * This is called when the user either releases his touch or the touch is
+     * canceled.
+     */
+    void onStopTrackingTouch(Thumb thumb) {
+        if (thumb != null) {
+            mDraggingThumbs.remove(thumb);
+            clearPrediction(thumb);
+            mHistoryPending = mHistory != null;
+            if (hasOnTrackingChangeListener()) {
+                dispatchStopTrackingTouch(thumb);
+            }
+            flushAccessibilityChange();
+            if (mDraggingThumbs.size() == 0) {
+                setPressed(false);
+            } else {
+                drawableStateChanged();
+            }
+        }
+    }
+
+    void onStopTrackingTouch() {
+        while (!mDraggingThumbs.isEmpty()) {
+            Thumb thumb = mDraggingThumbs.remove(0);
+            clearPrediction(thumb);
+            mHistoryPending = mHistory != null;
+            if (hasOnTrackingChangeListener()) {
+                dispatchStopTrackingTouch(thumb);
+            }
+        }
+        flushAccessibilityChange();
+        setPressed(false);
+    }
+
+    private boolean hasOnThumbValueChangeListener() {
+        return mOnThumbValueChangeListener != null || mValueChangeListeners.length > 0;
+    }
+
+    //
+
+    private boolean hasOnTrackingChangeListener() {
+        return mOnTrackingChangeListener != null || mTrackingChangeListeners.length > 0;
+    }
+
+    private boolean hasOnThumbValuesChangeListener() {
+        return mValuesChangeListeners.length > 0;
+    }
+
+    /**
+     * Reports a changed thumb value to the value listeners and records it for the values
+     * listeners, which are called right away if there is no batch edit in progress.
+     */
+    private void notifyValueChanged(Thumb thumb, int thumbIndex) {
+        if (hasOnThumbValueChangeListener()) {
+            dispatchValueChanged(thumb, thumbIndex, thumb.getValue());
+        }
+        if (hasOnThumbValuesChangeListener() && thumbIndex >= 0) {
+            mBatchValues.changed.set(thumbIndex);
+            if (mBatchDepth == 0) {
+                dispatchValuesChanged();
+            }
+        }
+    }
+
+    private void dispatchValuesChanged() {
+        if (mBatchValues.changed.isEmpty()) return;
+        final OnThumbValuesChangeListener[] listeners = mValuesChangeListeners;
+        if (listeners.length > 0) {
+            if (mMetrics != null) mMetrics.dispatches++;
+            mBatchValues.update(mThumbs);
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].onValuesChanged(this, mBatchValues);
+            }
+        }
+        mBatchValues.changed.clear();
+    }
+
+    private void dispatchValueChanged(Thumb thumb, int thumbIndex, int value) {
+        if (mMetrics != null) mMetrics.dispatches++;
+        if (mOnThumbValueChangeListener != null) {
+            mOnThumbValueChangeListener.onValueChanged(this, thumb, thumbIndex, value);
+        }
+        final OnThumbValueChangeListener[] listeners = mValueChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onValueChanged(this, thumb, thumbIndex, value);
+        }
+    }
+
+    private void dispatchStartTrackingTouch(Thumb thumb) {
+        if (mMetrics != null) mMetrics.dispatches++;
+        if (mOnTrackingChangeListener != null) {
+            mOnTrackingChangeListener.onStartTrackingTouch(this, thumb, thumb.getValue());
+        }
+        final OnTrackingChangeListener[] listeners = mTrackingChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onStartTrackingTouch(this, thumb, thumb.getValue());
+        }
+    }
+
+    private void dispatchStopTrackingTouch(Thumb thumb) {
+        if (mMetrics != null) mMetrics.dispatches++;
+        if (mOnTrackingChangeListener != null) {
+            mOnTrackingChangeListener.onStopTrackingTouch(this, thumb, thumb.getValue());
+        }
+        final OnTrackingChangeListener[] listeners = mTrackingChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onStopTrackingTouch(this, thumb, thumb.getValue());
+        }
+    }
+
+    /**
+     * @return the thumb that is moved by key and rotary input or null if there is none
+     */
+    public Thumb getFocusedThumb() {
+        if (mThumbs.isEmpty()) return null;
+        if (mFocusedThumb >= mThumbs.size()) {
+            mFocusedThumb = mThumbs.size() - 1;
+        }
+        return mThumbs.get(mFocusedThumb);
+    }
+
+    /**
+     * Moves the key focus to the next enabled thumb in the given direction
+     *
+     * @param direction 1 for the next thumb, -1 for the previous one
+     * @return true if the focus moved, false if there was no enabled thumb in that direction
+     */
+    private boolean moveThumbFocus(int direction) {
+        for (int i = mFocusedThumb + direction; i >= 0 && i < mThumbs.size(); i += direction) {
+            if (mThumbs.get(i).isEnabled()) {
+                mFocusedThumb = i;
+                refreshDrawableState();
+                invalidate();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        if (gainFocus && !mThumbs.isEmpty()) {
+            //coming from before the slider starts at the first thumb, from after at the last
+            final boolean mirrored = isLayoutRtl() && mMirrorForRtl;
+            if (direction == FOCUS_BACKWARD || direction == FOCUS_UP
+                    || direction == (mirrored ? FOCUS_RIGHT : FOCUS_LEFT)) {
+                mFocusedThumb = mThumbs.size();
+                moveThumbFocus(-1);
+            } else if (direction == FOCUS_FORWARD || direction == FOCUS_DOWN
+                    || direction == (mirrored ? FOCUS_LEFT : FOCUS_RIGHT)) {
+                mFocusedThumb = -1;
+                moveThumbFocus(1);
+            }
+        }
+    }
+
+    /**
+     * @return the key increment for the given number of key repeats
+     */
+    private int getKeyIncrement(int repeatCount) {
+        int factor = Math.min(KEY_ACCELERATION_MAX, 1 + repeatCount / KEY_ACCELERATION_REPEATS);
+        return Math.max(mStep, mKeyProgressIncrement * factor);
+    }
+
+    /**
+     * Moves the thumb by delta on the next frame. Changes requested before that frame are
+     * accumulated so there is a single value and geometry update per frame.
+     *
+     * @return true if the thumb can move in that direction, false if it is at a limit or
+     * against a neighbour, so the key can move the focus instead
+     */
+    private boolean moveThumbByKey(Thumb thumb, int delta) {
+        if (thumb == null || !thumb.isEnabled() || delta == 0) return false;
+        int base = (mKeyUpdatePosted && mKeyThumb == thumb) ? mKeyPendingValue : thumb.getValue();
+        int target = Math.max(thumb.getPossibleMin(), Math.min(thumb.getPossibleMax(), base +
+                delta));
+        //the same constraints the value gets when applied, neighbours included
+        target = optThumbValue(thumb, target);
+        if (delta > 0 ? target <= base : target >= base) return false;
+        if (mKeyThumb != null && mKeyThumb != thumb && mKeyUpdatePosted) {
+            //flush the change of the other thumb first
+            setThumbValue(mKeyThumb, mKeyPendingValue, true);
+        }
+        mKeyThumb = thumb;
+        mKeyPendingValue = target;
+        if (!mKeyUpdatePosted) {
+            mKeyUpdatePosted = true;
+            ViewCompat.postOnAnimation(this, mKeyUpdate);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        if (isEnabled() && mIsUserSeekable && !mThumbs.isEmpty()) {
+            switch (keyCode) {
+                case KeyEvent.KEYCODE_DPAD_LEFT:
+                case KeyEvent.KEYCODE_DPAD_RIGHT:
+                case KeyEvent.KEYCODE_MINUS:
+                case KeyEvent.KEYCODE_PLUS:
+                case KeyEvent.KEYCODE_EQUALS:
+                    int direction = (keyCode == KeyEvent.KEYCODE_DPAD_LEFT
+                            || keyCode == KeyEvent.KEYCODE_MINUS) ? -1 : 1;
+                    //arrows follow the layout direction, +/- do not
+                    if (isLayoutRtl() && mMirrorForRtl && (keyCode == KeyEvent.KEYCODE_DPAD_LEFT
+                            || keyCode == KeyEvent.KEYCODE_DPAD_RIGHT)) {
+                        direction = -direction;
+                    }
+                    if (moveThumbByKey(getFocusedThumb(),
+                            direction * getKeyIncrement(event.getRepeatCount()))) {
+                        return true;
+                    }
+                    break;
+                case KeyEvent.KEYCODE_TAB:
+                    if (event.hasNoModifiers()) {
+                        if (moveThumbFocus(1)) return true;
+                    } else if (event.hasModifiers(KeyEvent.META_SHIFT_ON)) {
+                        if (moveThumbFocus(-1)) return true;
+                    }
+                    break;
+                //d-pads without tab key go through the thumbs, past the last one the focus
+                //leaves the slider
+                case KeyEvent.KEYCODE_DPAD_DOWN:
+                    if (event.hasNoModifiers() && moveThumbFocus(1)) return true;
+                    break;
+                case KeyEvent.KEYCODE_DPAD_UP:
+                    if (event.hasNoModifiers() && moveThumbFocus(-1)) return true;
+                    break;
+            }
+        }
+
+        return super.onKeyDown(keyCode, event);
+    }
+
+    @Override
+    public boolean onGenericMotionEvent(MotionEvent event) {
+        if (isEnabled() && mIsUserSeekable && !mThumbs.isEmpty()
+                && event.getAction() == MotionEvent.ACTION_SCROLL) {
+            //rotary encoders report clockwise as negative scroll
+            float delta = event.getAxisValue(MotionEvent.AXIS_HSCROLL)
+                    + event.getAxisValue(MotionEvent.AXIS_VSCROLL)
+                    - event.getAxisValue(MotionEvent.AXIS_SCROLL);
+            if (delta != 0) {
+                Thumb thumb = null;
+                if ((event.getSource() & InputDevice.SOURCE_CLASS_POINTER) != 0) {
+                    //mouse wheel moves the thumb under the pointer
+                    LinkedList<Thumb> closest = getClosestThumb((int) event.getX());
+                    if (!closest.isEmpty()) {
+                        thumb = closest.getFirst();
+                    }
+                } else {
+                    thumb = getFocusedThumb();
+                }
+                int steps = delta > 0 ? Math.max(1, Math.round(delta)) : Math.min(-1, Math.round
+                        (delta));
+                if (moveThumbByKey(thumb, steps * Math.max(mStep, mKeyProgressIncrement))) {
+                    return true;
+                }
+            }
+        }
+        return super.onGenericMotionEvent(event);
+    }
+
+    /**
+     * Frame clock for the thumb flings driven by the Choreographer
+     */
+    private class ViewFrameClock implements ThumbFlinger.FrameClock, Runnable {
+        //frame interval used on platforms without Choreographer
+        static final long FALLBACK_FRAME_DELAY = 16;
+        private ThumbFlinger.FrameCallback callback;
+        private ChoreographerCallback choreographerCallback;
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void postFrameCallback(ThumbFlinger.FrameCallback callback) {
+            this.callback = callback;
+            if (Build.VERSION.SDK_INT >= 16) {
+                if (choreographerCallback == null) {
+                    choreographerCallback = new ChoreographerCallback(this);
+                }
+                choreographerCallback.post();
+            } else {
+                postDelayed(this, FALLBACK_FRAME_DELAY);
+            }
+        }
+
+        @Override
+        public void removeFrameCallback(ThumbFlinger.FrameCallback callback) {
+            if (Build.VERSION.SDK_INT >= 16) {
+                if (choreographerCallback != null) {
+                    choreographerCallback.remove();
+                }
+            } else {
+                removeCallbacks(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            doFrame(System.nanoTime());
+        }
+
+        void doFrame(long frameTimeNanos) {
+            if (callback != null) {
+                //all the thumbs flinging in this frame are reported as one change
+                beginBatchEdit();
+                try {
+                    callback.doFrame(frameTimeNanos);
+                } finally {
+                    endBatchEdit();
+                }
+            }
+        }
+    }
+
+    @TargetApi(16)
+    private static class ChoreographerCallback implements Choreographer.FrameCallback {
+        private final ViewFrameClock clock;
+
+        ChoreographerCallback(ViewFrameClock clock) {
+            this.clock = clock;
+        }
+
+        void post() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
 
-        return Math.round(progress);
+        void remove() {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            clock.doFrame(frameTimeNanos);
+        }
     }
 
-    /**
-     * Tries to claim the user's drag motion, and requests disallowing any
-     * ancestors from stealing events in the drag.
-     */
-    private void attemptClaimDrag() {
-        if (getParent() != null) {
-            getParent().requestDisallowInterceptTouchEvent(true);
+    @Override
+    protected void onDetachedFromWindow() {
+        stopFling();
+        if (mKeyUpdatePosted) {
+            removeCallbacks(mKeyUpdate);
+            mKeyUpdate.run();
+        }
+        if (mAccessibilityNodeProvider != null) {
+            mAccessibilityNodeProvider.cancelChanges();
+        }
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.scaleMin = mScaleMin;
+        ss.scaleMax = mScaleMax;
+        ss.step = mStep;
+        ss.stepsThumbsApart = mStepsThumbsApart;
+        ss.focusedThumb = mFocusedThumb;
+        ss.thumbs = new int[mThumbs.size() * SavedState.THUMB_SIZE];
+        int pos = 0;
+        for (Thumb thumb : mThumbs) {
+            ss.thumbs[pos++] = thumb.value;
+            ss.thumbs[pos++] = thumb.min;
+            ss.thumbs[pos++] = thumb.max;
+            ss.thumbs[pos++] = (thumb.isEnabled ? 0 : SavedState.FLAG_DISABLED)
+                    | (thumb.isInvisible ? SavedState.FLAG_INVISIBLE : 0);
         }
+        return ss;
     }
 
     /**
-     * This is called when the user has started touching this widget.
+     * Restores the scale and the thumbs. Existing thumbs are reused and missing ones are added
+     * with the default drawables, then all the thumbs are placed in one pass.
      */
-    void onStartTrackingTouch(Thumb thumb) {
-        if (thumb != null) {
-            mDraggingThumbs.add(thumb);
-            if (isPressed()) {
-                drawableStateChanged();
-            } else {
-                setPressed(true);
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+
+        resetInteraction();
+        beginBatchEdit();
+        try {
+            mScaleMin = ss.scaleMin;
+            mScaleMax = ss.scaleMax;
+            mStep = ss.step;
+            mStepsThumbsApart = ss.stepsThumbsApart;
+            updateKeyProgressIncrement();
+
+            final int count = ss.thumbs.length / SavedState.THUMB_SIZE;
+            setThumbCount(count);
+            final boolean notify = hasOnThumbValueChangeListener()
+                    || hasOnThumbValuesChangeListener();
+            int pos = 0;
+            int prevValue = 0;
+            int i = 0;
+            for (Thumb thumb : mThumbs) {
+                int flags = ss.thumbs[pos + 3];
+                prevValue = applyThumbState(thumb, i, prevValue, ss.thumbs[pos],
+                        ss.thumbs[pos + 1], ss.thumbs[pos + 2],
+                        (flags & SavedState.FLAG_DISABLED) == 0,
+                        (flags & SavedState.FLAG_INVISIBLE) != 0, notify);
+                pos += SavedState.THUMB_SIZE;
+                i++;
             }
+            mFocusedThumb = Math.max(0, Math.min(ss.focusedThumb, count - 1));
 
-            if (thumb.getThumb() != null) {
-                // This may be within the padding region.
-                invalidate(thumb.getThumb().getBounds());
-            }
-            if (hasOnTrackingChangeListener()) {
-                mOnTrackingChangeListener.onStartTrackingTouch(this, thumb, thumb.getValue());
+            if (count > 0) {
+                updateThumb(mThumbs.getFirst(), getWidth(), getHeight());
             }
-            attemptClaimDrag();
+            invalidate();
+        } finally {
+            endBatchEdit();
         }
     }
 
     /**
-     * This is called when the user either releases his touch or the touch is
-     * canceled.
+     * Adds or removes thumbs at the end to get to the given number of thumbs. Removed thumbs
+     * are kept and reused when thumbs are needed again, new ones get the default drawables.
+     * The padding is changed only if a new thumb needs more room.
+     *
+     * @return true if the number of thumbs changed
      */
-    void onStopTrackingTouch(Thumb thumb) {
-        if (thumb != null) {
+    private boolean setThumbCount(int count) {
+        if (count == mThumbs.size()) return false;
+        while (mThumbs.size() > count) {
+            Thumb thumb = mThumbs.removeLast();
             mDraggingThumbs.remove(thumb);
-            if (hasOnTrackingChangeListener()) {
-                mOnTrackingChangeListener.onStopTrackingTouch(this, thumb, thumb.getValue());
-            }
-            if (mDraggingThumbs.size() == 0) {
-                setPressed(false);
+            mThumbPool.add(thumb);
+        }
+        int maxOffset = 0;
+        while (mThumbs.size() < count) {
+            Thumb thumb;
+            if (mThumbPool.isEmpty()) {
+                thumb = new Thumb().setTag("thumb " + mThumbs.size());
+                setThumbDrawable(thumb, defThumbDrawable, defThumbColor);
+                setRangeDrawable(thumb, defRangeDrawable, defRangeColor);
             } else {
-                drawableStateChanged();
+                thumb = mThumbPool.remove(mThumbPool.size() - 1);
             }
+            maxOffset = Math.max(maxOffset, thumb.getThumbOffset());
+            mThumbs.add(thumb);
+        }
+        if (maxOffset > getPaddingLeft() || maxOffset > getPaddingRight()) {
+            setPadding(Math.max(getPaddingLeft(), maxOffset), getPaddingTop(),
+                    Math.max(getPaddingRight(), maxOffset), getPaddingBottom());
         }
+        return true;
     }
 
-    void onStopTrackingTouch() {
-        for (Thumb thumb : mDraggingThumbs) {
-            mDraggingThumbs.remove(thumb);
-            if (hasOnTrackingChangeListener()) {
-                mOnTrackingChangeListener.onStopTrackingTouch(this, thumb, thumb.getValue());
+    /**
+     * Sets the limits, flags and value of a thumb without placing it. The value is kept within
+     * the limits and after the previous thumb, so applying all the thumbs in order is a single
+     * constraint pass.
+     *
+     * @param prevValue the value of the previous thumb, ignored for the first one
+     * @return the applied value
+     */
+    private int applyThumbState(Thumb thumb, int thumbIndex, int prevValue, int value, int min,
+                                int max, boolean enabled, boolean invisible, boolean notify) {
+        thumb.min = min;
+        thumb.max = max;
+        if (thumbIndex > 0) {
+            value = Math.max(value, prevValue + mStepsThumbsApart * mStep);
+        }
+        value = Math.max(min, Math.min(max, value));
+        if (value != thumb.value) {
+            thumb.value = value;
+            if (notify) {
+                notifyValueChanged(thumb, thumbIndex);
             }
         }
-        setPressed(false);
+        thumb.isInvisible = invisible;
+        if (enabled != thumb.isEnabled) {
+            thumb.setEnabled(enabled);
+        }
+        return value;
     }
 
-    private boolean hasOnThumbValueChangeListener() {
-        return mOnThumbValueChangeListener != null;
+
+    @Override
+    public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+        if (mAccessibilityNodeProvider == null) {
+            mAccessibilityNodeProvider = new VirtualTreeProvider();
+        }
+        return mAccessibilityNodeProvider;
     }
 
-    //
+    /**
+     * Maps explore-by-touch hovering to the virtual thumb views, so accessibility services get
+     * the thumb under the finger without querying every thumb node.
+     */
+    @Override
+    public boolean dispatchHoverEvent(MotionEvent event) {
+        if (mAccessibilityNodeProvider != null) {
+            AccessibilityManager am = getAccessibilityManager();
+            if (am != null && am.isEnabled() && am.isTouchExplorationEnabled()) {
+                switch (event.getActionMasked()) {
+                    case MotionEvent.ACTION_HOVER_ENTER:
+                    case MotionEvent.ACTION_HOVER_MOVE:
+                        setHoveredThumb(findHoveredThumb(event.getX()));
+                        return true;
+                    case MotionEvent.ACTION_HOVER_EXIT:
+                        setHoveredThumb(View.NO_ID);
+                        return true;
+                }
+            }
+        }
+        return super.dispatchHoverEvent(event);
+    }
 
-    private boolean hasOnTrackingChangeListener() {
-        return mOnTrackingChangeListener != null;
+    /**
+     * @return the index of the thumb at x or {@link View#NO_ID} for the slider itself
+     */
+    private int findHoveredThumb(float x) {
+        //the same position a touch is matched with, see handleTouchEvent
+        final int touchX = (int) x;
+        final int idx = findClosestThumbIndex(touchX);
+        if (idx < 0 || !isExactTouch(idx, touchX, getThumbCenters())) {
+            return View.NO_ID;
+        }
+        return idx;
     }
 
-//   void onKeyChange() {
-//   }
-//
-//    @Override
-//    public boolean onKeyDown(int keyCode, KeyEvent event) {
-//        if (isEnabled()) {
-//            int progress = getProgress();
-//            switch (keyCode) {
-//                case KeyEvent.KEYCODE_DPAD_LEFT:
-//                    if (progress <= 0) break;
-//                    //setProgress(progress - mKeyProgressIncrement, true);
-//                    onKeyChange();
-//                    return true;
-//
-//                case KeyEvent.KEYCODE_DPAD_RIGHT:
-//                    if (progress >= getMax()) break;
-//                    //setProgress(progress + mKeyProgressIncrement, true);
-//                    onKeyChange();
-//                    return true;
-//            }
-//        }
-//
-//        return super.onKeyDown(keyCode, event);
-//    }
+    //package-private for the tests
+    int getHoveredThumb() {
+        return mHoveredThumb;
+    }
+
+    private AccessibilityManager getAccessibilityManager() {
+        if (mAccessibilityManager == null) {
+            mAccessibilityManager = (AccessibilityManager) getContext().getSystemService(Context
+                    .ACCESSIBILITY_SERVICE);
+        }
+        return mAccessibilityManager;
+    }
 
+    private void setHoveredThumb(int thumbIndex) {
+        if (thumbIndex == mHoveredThumb) return;
+        final int prev = mHoveredThumb;
+        mHoveredThumb = thumbIndex;
+        mAccessibilityNodeProvider.sendHoverEvent(thumbIndex,
+                AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+        mAccessibilityNodeProvider.sendHoverEvent(prev, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+    }
 
-    @Override
-    public AccessibilityNodeProvider getAccessibilityNodeProvider() {
-        if (mAccessibilityNodeProvider == null) {
-            mAccessibilityNodeProvider = new VirtualTreeProvider();
+    /**
+     * Schedules reporting the thumbs that changed to accessibility. Nothing is done unless an
+     * accessibility service already queried the slider.
+     */
+    private void notifyAccessibilityChange() {
+        if (mAccessibilityNodeProvider != null) {
+            mAccessibilityNodeProvider.onThumbsChanged();
+        }
+    }
+
+    /**
+     * Reports the pending thumb changes to accessibility right away, e.g. the final value of a
+     * drag
+     */
+    private void flushAccessibilityChange() {
+        if (mAccessibilityNodeProvider != null) {
+            mAccessibilityNodeProvider.flushChanges();
         }
-        return mAccessibilityNodeProvider;
     }
 
     //
@@ -1778,6 +3712,50 @@ public class MultiSlider extends View {
         return false;
     }
 
+    @Override
+    public void invalidate() {
+        if (mMetrics != null) mMetrics.invalidations++;
+        super.invalidate();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void invalidate(Rect dirty) {
+        if (mMetrics != null) mMetrics.invalidations++;
+        super.invalidate(dirty);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void invalidate(int l, int t, int r, int b) {
+        if (mMetrics != null) mMetrics.invalidations++;
+        super.invalidate(l, t, r, b);
+    }
+
+    @Override
+    public void postInvalidate() {
+        if (mMetrics != null) mMetrics.invalidations++;
+        super.postInvalidate();
+    }
+
+    @Override
+    public void postInvalidate(int left, int top, int right, int bottom) {
+        if (mMetrics != null) mMetrics.invalidations++;
+        super.postInvalidate(left, top, right, bottom);
+    }
+
+    @Override
+    public void requestLayout() {
+        if (mMetrics != null) mMetrics.layoutRequests++;
+        super.requestLayout();
+    }
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        if (mMetrics != null) mMetrics.paddingChanges++;
+        super.setPadding(left, top, right, bottom);
+    }
+
     @Override
     public void invalidateDrawable(Drawable dr) {
         if (!mInDrawing) {
@@ -1832,11 +3810,235 @@ public class MultiSlider extends View {
 
     }
 
+    /**
+     * Saved state of the scale and the thumbs with all the thumb data packed in one array.
+     */
+    static class SavedState extends BaseSavedState {
+        //ints per thumb: value, min, max, flags
+        static final int THUMB_SIZE = 4;
+        static final int FLAG_DISABLED = 1;
+        static final int FLAG_INVISIBLE = 1 << 1;
+
+        int scaleMin;
+        int scaleMax;
+        int step;
+        int stepsThumbsApart;
+        int focusedThumb;
+        int[] thumbs;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            scaleMin = in.readInt();
+            scaleMax = in.readInt();
+            step = in.readInt();
+            stepsThumbsApart = in.readInt();
+            focusedThumb = in.readInt();
+            thumbs = in.createIntArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(scaleMin);
+            out.writeInt(scaleMax);
+            out.writeInt(step);
+            out.writeInt(stepsThumbsApart);
+            out.writeInt(focusedThumb);
+            out.writeIntArray(thumbs);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR =
+                new Parcelable.Creator<SavedState>() {
+                    @Override
+                    public SavedState createFromParcel(Parcel in) {
+                        return new SavedState(in);
+                    }
+
+                    @Override
+                    public SavedState[] newArray(int size) {
+                        return new SavedState[size];
+                    }
+                };
+    }
+
+    /**
+     * Read-only view of the thumb values passed to {@link OnThumbValuesChangeListener}.
+     * The instance and its buffers are reused between the calls.
+     */
+    public static final class ThumbValues {
+        private int[] values = new int[2];
+        private int size = 0;
+        final IndexBitSet changed = new IndexBitSet();
+
+        ThumbValues() {
+        }
+
+        void update(List<Thumb> thumbs) {
+            size = thumbs.size();
+            if (values.length < size) {
+                values = new int[Math.max(size, values.length * 2)];
+            }
+            int i = 0;
+            for (Thumb thumb : thumbs) {
+                values[i++] = thumb.getValue();
+            }
+            changed.clearFrom(size);
+        }
+
+        /**
+         * @return the number of thumbs
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param thumbIndex the index of the thumb
+         * @return the value of the thumb
+         */
+        public int getValue(int thumbIndex) {
+            if (thumbIndex < 0 || thumbIndex >= size) {
+                throw new IndexOutOfBoundsException(String.format("thumbIndex(%d) size(%d)",
+                        thumbIndex, size));
+            }
+            return values[thumbIndex];
+        }
+
+        /**
+         * @param thumbIndex the index of the thumb
+         * @return true if the thumb value changed in this batch
+         */
+        public boolean isChanged(int thumbIndex) {
+            return changed.get(thumbIndex);
+        }
+
+        /**
+         * @return the number of thumbs which value changed in this batch
+         */
+        public int getChangedCount() {
+            return changed.cardinality();
+        }
+
+        /**
+         * Iterates over the changed thumbs:
+         * <pre>
+         * for (int i = values.nextChanged(0); i >= 0; i = values.nextChanged(i + 1)) {...}
+         * </pre>
+         *
+         * @param fromIndex index to start from
+         * @return the index of the next changed thumb starting at fromIndex or -1 if none
+         */
+        public int nextChanged(int fromIndex) {
+            return changed.nextSetBit(fromIndex);
+        }
+
+        /**
+         * Copies the values to an array
+         *
+         * @param dest the array to copy the values to, must have at least {@link #size()}
+         *             elements
+         */
+        public void copyTo(int[] dest) {
+            System.arraycopy(values, 0, dest, 0, size);
+        }
+    }
+
+    /**
+     * Value change listener wrapper that calls the wrapped listener at most once per interval.
+     * <p/>
+     * The first change after a quiet period is delivered immediately. Further changes within
+     * the interval only mark their thumb as pending and are delivered together, with the
+     * latest thumb values, when the interval elapses. Useful for listeners doing expensive
+     * work like queries which do not need every intermediate value of a drag.
+     */
+    public static class ConflatingChangeListener implements OnThumbValueChangeListener,
+            Runnable {
+
+        private final OnThumbValueChangeListener listener;
+        private final long minInterval;
+        private long lastDispatch;
+        private boolean[] pending = new boolean[2];
+        private boolean flushPosted = false;
+        private MultiSlider multiSlider;
+
+        /**
+         * @param listener    the listener to call
+         * @param minInterval minimum time between two callbacks in milliseconds
+         */
+        public ConflatingChangeListener(OnThumbValueChangeListener listener, long minInterval) {
+            this.listener = requireNonNull(listener);
+            this.minInterval = minInterval;
+            this.lastDispatch = SystemClock.uptimeMillis() - minInterval;
+        }
+
+        @Override
+        public void onValueChanged(MultiSlider multiSlider, Thumb thumb, int thumbIndex, int
+                value) {
+            long now = SystemClock.uptimeMillis();
+            if (!flushPosted && now - lastDispatch >= minInterval) {
+                lastDispatch = now;
+                listener.onValueChanged(multiSlider, thumb, thumbIndex, value);
+                return;
+            }
+            if (thumbIndex >= pending.length) {
+                boolean[] newPending = new boolean[Math.max(thumbIndex + 1, pending.length * 2)];
+                System.arraycopy(pending, 0, newPending, 0, pending.length);
+                pending = newPending;
+            }
+            pending[thumbIndex] = true;
+            this.multiSlider = multiSlider;
+            if (!flushPosted) {
+                flushPosted = true;
+                multiSlider.postDelayed(this, lastDispatch + minInterval - now);
+            }
+        }
+
+        @Override
+        public void run() {
+            flushPosted = false;
+            lastDispatch = SystemClock.uptimeMillis();
+            final int thumbCount = multiSlider.getThumbCount();
+            for (int i = 0; i < pending.length; i++) {
+                if (!pending[i]) continue;
+                pending[i] = false;
+                if (i < thumbCount) {
+                    Thumb thumb = multiSlider.getThumb(i);
+                    listener.onValueChanged(multiSlider, thumb, i, thumb.getValue());
+                }
+            }
+        }
+    }
+
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
     class VirtualTreeProvider extends AccessibilityNodeProvider {
         static final int ACT_SET_PROGRESS = 16908349;
+        //argument of ACT_SET_PROGRESS with the value of a thumb
+        static final String ARG_VALUE = "value";
+        //argument of ACT_SET_PROGRESS on the slider with the values of the first thumbs
+        static final String ARG_VALUES = "values";
         final AccessibilityNodeInfo.AccessibilityAction ACTION_SET_PROGRESS;
 
+        //nodes are built on every query as the framework recycles them, only the thumb text is
+        //kept between queries, the location and rect below are reused for the node bounds
+        private final int[] location = new int[2];
+        private final Rect screenBounds = new Rect();
+        //number of thumbs last reported
+        private int reportedCount = -1;
+        private boolean changesPosted = false;
+        private long lastSentTime;
+        private final Runnable sendChanges = new Runnable() {
+            @Override
+            public void run() {
+                changesPosted = false;
+                lastSentTime = SystemClock.uptimeMillis();
+                sendChangedThumbs();
+            }
+        };
+
         public VirtualTreeProvider() {
             if (Build.VERSION.SDK_INT >= 21) {
                 ACTION_SET_PROGRESS =
@@ -1844,6 +4046,11 @@ public class MultiSlider extends View {
             } else {
                 ACTION_SET_PROGRESS = null;
             }
+            //the state a service sees first, the changes from it on are reported
+            for (Thumb thumb : mThumbs) {
+                thumb.updateA11yState();
+            }
+            reportedCount = mThumbs.size();
         }
 
         @Override
@@ -1861,10 +4068,13 @@ public class MultiSlider extends View {
                 for (int i = 0; i < childCount; i++) {
                     info.addChild(MultiSlider.this, i);
                 }
+                //sets the values of many thumbs at once
+                if (Build.VERSION.SDK_INT >= 21 && childCount > 0) {
+                    info.addAction(ACTION_SET_PROGRESS);
+                }
                 if (mThumbs.size() == 1) {
                     info.setScrollable(true);
                     if (Build.VERSION.SDK_INT >= 21) {
-                        info.addAction(ACTION_SET_PROGRESS);
                         info.addAction(ACTION_SCROLL_BACKWARD);
                         info.addAction(ACTION_SCROLL_FORWARD);
                     } else {
@@ -1890,7 +4100,7 @@ public class MultiSlider extends View {
 
                 if (Build.VERSION.SDK_INT >= 21) {
                     info.addAction(ACTION_SET_PROGRESS);
-                    if (thumb.getPossibleMax() > thumb.value) {
+                    if (thumb.getPossibleMin() < thumb.value) {
                         info.addAction(ACTION_SCROLL_BACKWARD);
                     }
                     if (thumb.getPossibleMax() > thumb.value) {
@@ -1898,7 +4108,7 @@ public class MultiSlider extends View {
                     }
 
                 } else {
-                    if (thumb.getPossibleMin() > thumb.value) {
+                    if (thumb.getPossibleMin() < thumb.value) {
                         info.addAction(AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD);
                     }
                     if (thumb.getPossibleMax() > thumb.value) {
@@ -1908,20 +4118,20 @@ public class MultiSlider extends View {
 
 
                 if (thumb.getThumb() != null) {
-                    int[] loc = new int[2];
-                    getLocationOnScreen(loc);
-                    Rect rect = thumb.getThumb().copyBounds();
-                    rect.top += loc[1];
-                    rect.left += loc[0];
-                    rect.right += loc[0];
-                    rect.bottom += loc[1];
-                    info.setBoundsInScreen(rect);
+                    getLocationOnScreen(location);
+                    screenBounds.set(thumb.getThumb().getBounds());
+                    screenBounds.offset(location[0], location[1]);
+                    info.setBoundsInScreen(screenBounds);
                     //TODO somehow this resuls in [0,0][0,0]. wonder check why
                     //info.setBoundsInParent(rect);
 
                 }
 
-                info.setText(thumb.tag + ": " + thumb.value);
+                //a thumb added after the provider was created is known from its first node
+                if (!thumb.a11yReported) {
+                    thumb.updateA11yState();
+                }
+                info.setText(thumb.getA11yText());
                 info.setEnabled(thumb.isEnabled());
                 if (Build.VERSION.SDK_INT >= 24) {
                     info.setImportantForAccessibility(true);
@@ -1979,29 +4189,149 @@ public class MultiSlider extends View {
             return super.findFocus(focus);
         }
 
-        @Override
-        public boolean performAction(int virtualViewId, int action, Bundle arguments) {
-            if (virtualViewId == View.NO_ID) {
-                //do nothing ..  for now
-                return false;
+        /**
+         * Posts a check of the thumbs, at most once per event interval and only while
+         * accessibility is enabled
+         */
+        void onThumbsChanged() {
+            if (changesPosted || getParent() == null) return;
+            AccessibilityManager am = getAccessibilityManager();
+            if (am == null || !am.isEnabled()) return;
+            changesPosted = true;
+            long delay = lastSentTime + mAccessibilityEventInterval - SystemClock.uptimeMillis();
+            if (delay > 0) {
+                postDelayed(sendChanges, delay);
             } else {
-                if (virtualViewId >= mThumbs.size()) return false;
-                Thumb thumb = mThumbs.get(virtualViewId);
-                if (thumb == null) return false;
+                ViewCompat.postOnAnimation(MultiSlider.this, sendChanges);
+            }
+        }
 
-                switch (action) {
-                    case AccessibilityNodeInfo.ACTION_SCROLL_FORWARD:
-                        thumb.setValue(thumb.value + getStep());
-                        return true;
+        void flushChanges() {
+            if (changesPosted) {
+                removeCallbacks(sendChanges);
+                sendChanges.run();
+            }
+        }
 
-                    case AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD:
-                        thumb.setValue(thumb.value - getStep());
-                        return true;
+        void cancelChanges() {
+            if (changesPosted) {
+                removeCallbacks(sendChanges);
+                changesPosted = false;
+            }
+        }
 
-                    case ACT_SET_PROGRESS:
-                        thumb.setValue(arguments.getInt("value"));
-                        return true;
+        private void sendChangedThumbs() {
+            final int count = mThumbs.size();
+            if (count != reportedCount) {
+                if (reportedCount >= 0) {
+                    sendContentChanged(View.NO_ID);
+                }
+                reportedCount = count;
+            }
+            int i = 0;
+            for (Thumb thumb : mThumbs) {
+                int value = thumb.a11yValue;
+                if (thumb.updateA11yState()) {
+                    if (value != thumb.value) {
+                        sendValueChanged(thumb, i);
+                    } else {
+                        sendContentChanged(i);
+                    }
+                }
+                i++;
+            }
+        }
+
+        /**
+         * Reports a new value like a scrolled view so it is announced
+         */
+        private void sendValueChanged(Thumb thumb, int thumbIndex) {
+            ViewParent parent = getParent();
+            if (parent == null) return;
+            AccessibilityEvent event = AccessibilityEvent.obtain(AccessibilityEvent
+                    .TYPE_VIEW_SCROLLED);
+            event.setPackageName(getContext().getPackageName());
+            event.setClassName(Thumb.class.getName());
+            event.setSource(MultiSlider.this, thumbIndex);
+            event.setEnabled(thumb.isEnabled());
+            event.setItemCount(getScaleSize());
+            event.setCurrentItemIndex(thumb.value - mScaleMin);
+            event.getText().add(thumb.getA11yText());
+            parent.requestSendAccessibilityEvent(MultiSlider.this, event);
+        }
+
+        /**
+         * @param virtualViewId the thumb index or {@link View#NO_ID} for the slider itself
+         * @param eventType     hover enter or exit
+         */
+        void sendHoverEvent(int virtualViewId, int eventType) {
+            if (virtualViewId == View.NO_ID) {
+                sendAccessibilityEvent(eventType);
+                return;
+            }
+            if (virtualViewId >= mThumbs.size()) return;
+            ViewParent parent = getParent();
+            if (parent == null) return;
+            AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+            event.setPackageName(getContext().getPackageName());
+            event.setClassName(Thumb.class.getName());
+            event.setSource(MultiSlider.this, virtualViewId);
+            event.setEnabled(mThumbs.get(virtualViewId).isEnabled());
+            event.getText().add(mThumbs.get(virtualViewId).getA11yText());
+            parent.requestSendAccessibilityEvent(MultiSlider.this, event);
+        }
+
+        /**
+         * @param virtualViewId the thumb index or {@link View#NO_ID} for the thumbs structure
+         */
+        private void sendContentChanged(int virtualViewId) {
+            ViewParent parent = getParent();
+            if (parent == null) return;
+            AccessibilityEvent event = AccessibilityEvent.obtain(AccessibilityEvent
+                    .TYPE_WINDOW_CONTENT_CHANGED);
+            event.setPackageName(getContext().getPackageName());
+            event.setClassName(virtualViewId == View.NO_ID ? MultiSlider.class.getName() :
+                    Thumb.class.getName());
+            event.setSource(MultiSlider.this, virtualViewId);
+            if (Build.VERSION.SDK_INT >= 19) {
+                event.setContentChangeTypes(virtualViewId == View.NO_ID ?
+                        AccessibilityEvent.CONTENT_CHANGE_TYPE_SUBTREE :
+                        AccessibilityEvent.CONTENT_CHANGE_TYPE_UNDEFINED);
+            }
+            parent.requestSendAccessibilityEvent(MultiSlider.this, event);
+        }
+
+        @Override
+        public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+            if (virtualViewId == View.NO_ID) {
+                if (action == ACT_SET_PROGRESS && arguments != null
+                        && arguments.getIntArray(ARG_VALUES) != null) {
+                    int[] values = arguments.getIntArray(ARG_VALUES);
+                    if (values.length > mThumbs.size()) return false;
+                    setThumbValues(values);
+                    return true;
                 }
+                //a single thumb slider acts like a seek bar
+                if (mThumbs.size() != 1) return false;
+                virtualViewId = 0;
+            }
+            if (virtualViewId >= mThumbs.size()) return false;
+            Thumb thumb = mThumbs.get(virtualViewId);
+            if (thumb == null) return false;
+
+            switch (action) {
+                case AccessibilityNodeInfo.ACTION_SCROLL_FORWARD:
+                    thumb.setValue(thumb.value + getStep());
+                    return true;
+
+                case AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD:
+                    thumb.setValue(thumb.value - getStep());
+                    return true;
+
+                case ACT_SET_PROGRESS:
+                    if (arguments == null || !arguments.containsKey(ARG_VALUE)) return false;
+                    thumb.setValue(arguments.getInt(ARG_VALUE));
+                    return true;
             }
 
             return false;
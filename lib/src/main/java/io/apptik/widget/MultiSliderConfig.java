@@ -0,0 +1,412 @@
+package io.apptik.widget;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.AttributeSet;
+
+import androidx.core.content.ContextCompat;
+
+import io.apptik.widget.mslider.R;
+
+import static io.apptik.widget.Util.requireNonNull;
+
+/**
+ * Immutable set of the styleable {@link MultiSlider} attributes.
+ * <p/>
+ * Resolving the attributes and loading the drawables is the bulk of the construction time of a
+ * slider. A config can be resolved once, from a style or with the {@link Builder}, and shared by
+ * any number of sliders created with {@link MultiSlider#MultiSlider(Context, MultiSliderConfig)},
+ * e.g. the rows of a RecyclerView. Drawables are kept as {@link Drawable.ConstantState}s, so each
+ * slider gets its own drawable instances sharing the loaded resources.
+ * <p/>
+ * Sliders inflated from layouts resolve their style themselves. A config reflects the theme it
+ * was resolved with, so it should be shared only by sliders of that theme and resolved again
+ * after the theme or the configuration changed.
+ */
+public final class MultiSliderConfig {
+
+    /**
+     * thumb offset value meaning half of the thumb width
+     */
+    public static final int DEFAULT_THUMB_OFFSET = Integer.MIN_VALUE;
+
+    final int thumbNumber;
+    final int scaleMin;
+    final int scaleMax;
+    final int step;
+    final int stepsThumbsApart;
+    final boolean drawThumbsApart;
+    final boolean mirrorForRtl;
+    final boolean focusable;
+    final boolean focusableSet;
+    final int thumbOffset;
+
+    final Drawable.ConstantState track;
+    final Drawable.ConstantState thumb;
+    final Drawable.ConstantState range;
+    final Drawable.ConstantState range1;
+    final Drawable.ConstantState range2;
+    final int trackColor;
+    final int thumbColor;
+    final int rangeColor;
+    final int range1Color;
+    final int range2Color;
+
+    private MultiSliderConfig(Builder builder) {
+        thumbNumber = builder.thumbNumber;
+        scaleMin = builder.scaleMin;
+        scaleMax = builder.scaleMax;
+        step = builder.step;
+        stepsThumbsApart = builder.stepsThumbsApart;
+        drawThumbsApart = builder.drawThumbsApart;
+        mirrorForRtl = builder.mirrorForRtl;
+        focusable = builder.focusable;
+        focusableSet = builder.focusableSet;
+        thumbOffset = builder.thumbOffset;
+        track = builder.track;
+        thumb = builder.thumb;
+        range = builder.range;
+        range1 = builder.range1;
+        range2 = builder.range2;
+        trackColor = builder.trackColor;
+        thumbColor = builder.thumbColor;
+        rangeColor = builder.rangeColor;
+        range1Color = builder.range1Color;
+        range2Color = builder.range2Color;
+    }
+
+    /**
+     * Resolves the config from the default slider style of the context theme
+     */
+    public static MultiSliderConfig fromStyle(Context context) {
+        return fromStyle(context, null, R.attr.multiSliderStyle, 0);
+    }
+
+    /**
+     * Resolves the config from a style resource
+     *
+     * @param styleRes the style to use, e.g. R.style.Widget_MultiSlider_Holo
+     */
+    public static MultiSliderConfig fromStyle(Context context, int styleRes) {
+        return fromStyle(context, null, 0, styleRes);
+    }
+
+    /**
+     * Resolves the config the same way a slider constructor does
+     */
+    public static MultiSliderConfig fromStyle(Context context, AttributeSet attrs, int defStyle,
+                                              int styleRes) {
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.MultiSlider, defStyle,
+                styleRes);
+        try {
+            Builder builder = new Builder(context)
+                    .setThumbNumber(a.getInt(R.styleable.MultiSlider_thumbNumber, 2))
+                    .setScale(a.getInt(R.styleable.MultiSlider_scaleMin, 0),
+                            a.getInt(R.styleable.MultiSlider_scaleMax, 100))
+                    .setStep(a.getInt(R.styleable.MultiSlider_scaleStep, 1))
+                    .setStepsThumbsApart(a.getInt(R.styleable.MultiSlider_stepsThumbsApart, 0))
+                    .setDrawThumbsApart(a.getBoolean(R.styleable.MultiSlider_drawThumbsApart,
+                            false))
+                    .setMirrorForRtl(a.getBoolean(R.styleable.MultiSlider_mirrorForRTL, true))
+                    .setThumbOffset(a.getDimensionPixelOffset(
+                            R.styleable.MultiSlider_android_thumbOffset, DEFAULT_THUMB_OFFSET))
+                    .setTrackDrawable(a.getDrawable(R.styleable.MultiSlider_android_track))
+                    .setThumbDrawable(a.getDrawable(R.styleable.MultiSlider_android_thumb))
+                    .setRangeDrawable(a.getDrawable(R.styleable.MultiSlider_range))
+                    .setRange1Drawable(a.getDrawable(R.styleable.MultiSlider_range1))
+                    .setRange2Drawable(a.getDrawable(R.styleable.MultiSlider_range2))
+                    .setTrackColor(a.getColor(R.styleable.MultiSlider_trackColor, 0))
+                    .setThumbColor(a.getColor(R.styleable.MultiSlider_thumbColor, 0))
+                    .setRangeColor(a.getColor(R.styleable.MultiSlider_rangeColor, 0))
+                    .setRange1Color(a.getColor(R.styleable.MultiSlider_range1Color, 0))
+                    .setRange2Color(a.getColor(R.styleable.MultiSlider_range2Color, 0));
+            if (a.hasValue(R.styleable.MultiSlider_android_focusable)) {
+                builder.setFocusable(a.getBoolean(R.styleable.MultiSlider_android_focusable,
+                        false));
+            }
+            return builder.build();
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * @return a builder initialized with this config
+     */
+    public Builder newBuilder(Context context) {
+        return new Builder(context, this);
+    }
+
+    public int getThumbNumber() {
+        return thumbNumber;
+    }
+
+    public int getScaleMin() {
+        return scaleMin;
+    }
+
+    public int getScaleMax() {
+        return scaleMax;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public int getStepsThumbsApart() {
+        return stepsThumbsApart;
+    }
+
+    public boolean isDrawThumbsApart() {
+        return drawThumbsApart;
+    }
+
+    public boolean isMirrorForRtl() {
+        return mirrorForRtl;
+    }
+
+    /**
+     * @return the focusable state set on the sliders, only if {@link #isFocusableSet()}
+     */
+    public boolean isFocusable() {
+        return focusable;
+    }
+
+    /**
+     * @return true if the config sets the focusable state, otherwise sliders keep the
+     * {@link android.view.View} default
+     */
+    public boolean isFocusableSet() {
+        return focusableSet;
+    }
+
+    /**
+     * @return thumb offset in pixels or {@link #DEFAULT_THUMB_OFFSET}
+     */
+    public int getThumbOffset() {
+        return thumbOffset;
+    }
+
+    public static final class Builder {
+        private final Context context;
+        private int thumbNumber = 2;
+        private int scaleMin = 0;
+        private int scaleMax = 100;
+        private int step = 1;
+        private int stepsThumbsApart = 0;
+        private boolean drawThumbsApart = false;
+        private boolean mirrorForRtl = true;
+        private boolean focusable = false;
+        private boolean focusableSet = false;
+        private int thumbOffset = DEFAULT_THUMB_OFFSET;
+        private Drawable.ConstantState track;
+        private Drawable.ConstantState thumb;
+        private Drawable.ConstantState range;
+        private Drawable.ConstantState range1;
+        private Drawable.ConstantState range2;
+        private int trackColor;
+        private int thumbColor;
+        private int rangeColor;
+        private int range1Color;
+        private int range2Color;
+
+        /**
+         * @param context used to load the default drawables
+         */
+        public Builder(Context context) {
+            this.context = requireNonNull(context);
+        }
+
+        private Builder(Context context, MultiSliderConfig config) {
+            this(context);
+            thumbNumber = config.thumbNumber;
+            scaleMin = config.scaleMin;
+            scaleMax = config.scaleMax;
+            step = config.step;
+            stepsThumbsApart = config.stepsThumbsApart;
+            drawThumbsApart = config.drawThumbsApart;
+            mirrorForRtl = config.mirrorForRtl;
+            focusable = config.focusable;
+            focusableSet = config.focusableSet;
+            thumbOffset = config.thumbOffset;
+            track = config.track;
+            thumb = config.thumb;
+            range = config.range;
+            range1 = config.range1;
+            range2 = config.range2;
+            trackColor = config.trackColor;
+            thumbColor = config.thumbColor;
+            rangeColor = config.rangeColor;
+            range1Color = config.range1Color;
+            range2Color = config.range2Color;
+        }
+
+        public Builder setThumbNumber(int thumbNumber) {
+            if (thumbNumber < 0) {
+                throw new IllegalArgumentException(String.format("setThumbNumber(%d) < 0",
+                        thumbNumber));
+            }
+            this.thumbNumber = thumbNumber;
+            return this;
+        }
+
+        public Builder setScale(int min, int max) {
+            if (max < min) {
+                throw new IllegalArgumentException(String.format("max(%d) < min(%d)", max, min));
+            }
+            this.scaleMin = min;
+            this.scaleMax = max;
+            return this;
+        }
+
+        public Builder setStep(int step) {
+            this.step = step;
+            return this;
+        }
+
+        public Builder setStepsThumbsApart(int stepsThumbsApart) {
+            this.stepsThumbsApart = Math.max(0, stepsThumbsApart);
+            return this;
+        }
+
+        public Builder setDrawThumbsApart(boolean drawThumbsApart) {
+            this.drawThumbsApart = drawThumbsApart;
+            return this;
+        }
+
+        public Builder setMirrorForRtl(boolean mirrorForRtl) {
+            this.mirrorForRtl = mirrorForRtl;
+            return this;
+        }
+
+        /**
+         * @param focusable the focusable state to set on the sliders, when not set they keep the
+         *                  {@link android.view.View} default
+         */
+        public Builder setFocusable(boolean focusable) {
+            this.focusable = focusable;
+            this.focusableSet = true;
+            return this;
+        }
+
+        /**
+         * @param thumbOffset offset in pixels or {@link #DEFAULT_THUMB_OFFSET} for half of the
+         *                    thumb width
+         */
+        public Builder setThumbOffset(int thumbOffset) {
+            this.thumbOffset = thumbOffset;
+            return this;
+        }
+
+        /**
+         * @param drawable the drawable or null for the default one
+         */
+        public Builder setTrackDrawable(Drawable drawable) {
+            this.track = constantState(drawable);
+            return this;
+        }
+
+        /**
+         * @param drawable the drawable or null for the default one
+         */
+        public Builder setThumbDrawable(Drawable drawable) {
+            this.thumb = constantState(drawable);
+            return this;
+        }
+
+        /**
+         * @param drawable the drawable or null for the default one
+         */
+        public Builder setRangeDrawable(Drawable drawable) {
+            this.range = constantState(drawable);
+            return this;
+        }
+
+        /**
+         * @param drawable the range drawable of the first thumb or null to use the range one
+         */
+        public Builder setRange1Drawable(Drawable drawable) {
+            this.range1 = constantState(drawable);
+            return this;
+        }
+
+        /**
+         * @param drawable the range drawable of the second thumb or null to use the range one
+         */
+        public Builder setRange2Drawable(Drawable drawable) {
+            this.range2 = constantState(drawable);
+            return this;
+        }
+
+        /**
+         * @param color tint color or 0 for no tint
+         */
+        public Builder setTrackColor(int color) {
+            this.trackColor = color;
+            return this;
+        }
+
+        /**
+         * @param color tint color or 0 for no tint
+         */
+        public Builder setThumbColor(int color) {
+            this.thumbColor = color;
+            return this;
+        }
+
+        /**
+         * @param color tint color or 0 for no tint
+         */
+        public Builder setRangeColor(int color) {
+            this.rangeColor = color;
+            return this;
+        }
+
+        /**
+         * @param color tint color of the first thumb range or 0 for no tint
+         */
+        public Builder setRange1Color(int color) {
+            this.range1Color = color;
+            return this;
+        }
+
+        /**
+         * @param color tint color of the second thumb range or 0 for no tint
+         */
+        public Builder setRange2Color(int color) {
+            this.range2Color = color;
+            return this;
+        }
+
+        public MultiSliderConfig build() {
+            if (track == null) {
+                track = defaultDrawable(R.drawable.multislider_track_material);
+            }
+            if (thumb == null) {
+                thumb = defaultDrawable(Build.VERSION.SDK_INT >= 21
+                        ? R.drawable.multislider_thumb_material_anim
+                        : R.drawable.multislider_thumb_material);
+            }
+            if (range == null) {
+                range = defaultDrawable(R.drawable.multislider_range_material);
+            }
+            return new MultiSliderConfig(this);
+        }
+
+        private Drawable.ConstantState defaultDrawable(int resId) {
+            return constantState(ContextCompat.getDrawable(context, resId));
+        }
+
+        private static Drawable.ConstantState constantState(Drawable drawable) {
+            if (drawable == null) return null;
+            Drawable.ConstantState state = drawable.getConstantState();
+            if (state == null) {
+                throw new IllegalArgumentException("Drawable cannot be shared, it has no " +
+                        "ConstantState: " + drawable);
+            }
+            return state;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.apptik.widget;
+
+/**
+ * Counters of the work done by a {@link MultiSlider}, enabled with
+ * {@link MultiSlider#setMetricsEnabled(boolean)}.
+ * <p/>
+ * The counters are updated on the main thread by the slider and are meant to be read there too,
+ * e.g. reset before a user action or a frame and read after it, to see how much work the action
+ * caused.
+ */
+public final class MultiSliderMetrics {
+
+    long invalidations;
+    long layoutRequests;
+    long paddingChanges;
+    long geometryUpdates;
+    long dispatches;
+    long draws;
+    long drawNanos;
+    long maxDrawNanos;
+
+    MultiSliderMetrics() {
+    }
+
+    void recordDraw(long nanos) {
+        draws++;
+        drawNanos += nanos;
+        if (nanos > maxDrawNanos) {
+            maxDrawNanos = nanos;
+        }
+    }
+
+    /**
+     * @return number of invalidate and postInvalidate calls, including the ones for a dirty
+     * region
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return number of requestLayout calls
+     */
+    public long getLayoutRequests() {
+        return layoutRequests;
+    }
+
+    /**
+     * @return number of setPadding calls
+     */
+    public long getPaddingChanges() {
+        return paddingChanges;
+    }
+
+    /**
+     * @return number of times the bounds of a thumb or of the track were computed
+     */
+    public long getGeometryUpdates() {
+        return geometryUpdates;
+    }
+
+    /**
+     * @return number of value and tracking changes dispatched to the listeners
+     */
+    public long getDispatches() {
+        return dispatches;
+    }
+
+    /**
+     * @return number of onDraw calls
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * @return total time spent in onDraw in ns
+     */
+    public long getDrawNanos() {
+        return drawNanos;
+    }
+
+    /**
+     * @return the longest onDraw in ns
+     */
+    public long getMaxDrawNanos() {
+        return maxDrawNanos;
+    }
+
+    /**
+     * Sets all the counters to 0
+     */
+    public void reset() {
+        invalidations = 0;
+        layoutRequests = 0;
+        paddingChanges = 0;
+        geometryUpdates = 0;
+        dispatches = 0;
+        draws = 0;
+        drawNanos = 0;
+        maxDrawNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiSliderMetrics{" +
+                "invalidations=" + invalidations +
+                ", layoutRequests=" + layoutRequests +
+                ", paddingChanges=" + paddingChanges +
+                ", geometryUpdates=" + geometryUpdates +
+                ", dispatches=" + dispatches +
+                ", draws=" + draws +
+                ", drawNanos=" + drawNanos +
+                ", maxDrawNanos=" + maxDrawNanos +
+                '}';
+    }
+}
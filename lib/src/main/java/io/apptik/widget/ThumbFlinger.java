@@ -0,0 +1,242 @@
+package io.apptik.widget;
+
+
+/**
+ * Moves thumbs with a decelerating velocity after they are released with a fling.
+ * <p/>
+ * All the flinging thumbs are advanced from a single frame callback, the motion is integrated
+ * with exponential friction and only values aligned to the scale step are emitted.
+ * The state of the flings is kept in primitive arrays which only grow when more thumbs fling at
+ * the same time than ever before.
+ */
+final class ThumbFlinger {
+
+    /**
+     * Source of frame callbacks, the Choreographer on a device or a fake one in tests.
+     */
+    interface FrameClock {
+        /**
+         * @return the current time in the time base of the frames in nanoseconds
+         */
+        long nanoTime();
+
+        void postFrameCallback(FrameCallback callback);
+
+        void removeFrameCallback(FrameCallback callback);
+    }
+
+    interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    /**
+     * Receiver of the fling values.
+     */
+    interface Target {
+        /**
+         * @param thumbIndex the index of the flinging thumb
+         * @param value      the new step aligned value
+         * @return the value that the thumb actually got after applying its constraints
+         */
+        int onFlingValue(int thumbIndex, int value);
+
+        /**
+         * @param thumbIndex the index of the thumb which stopped moving
+         */
+        void onFlingEnd(int thumbIndex);
+    }
+
+    /**
+     * velocity decay rate per second
+     */
+    static final float DEFAULT_FRICTION = 4f;
+
+    private final FrameClock clock;
+    private final Target target;
+    private float friction = DEFAULT_FRICTION;
+
+    private int count = 0;
+    private int[] indices = new int[2];
+    private int[] values = new int[2];
+    private int[] origins = new int[2];
+    private int[] steps = new int[2];
+    private float[] positions = new float[2];
+    private float[] velocities = new float[2];
+    private float[] minVelocities = new float[2];
+    private long[] times = new long[2];
+    private boolean posted = false;
+    private final FrameCallback frameCallback = new FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            ThumbFlinger.this.doFrame(frameTimeNanos);
+        }
+    };
+
+    ThumbFlinger(FrameClock clock, Target target) {
+        this.clock = clock;
+        this.target = target;
+    }
+
+    float getFriction() {
+        return friction;
+    }
+
+    /**
+     * @param friction velocity decay rate per second, higher values stop the fling sooner
+     */
+    void setFriction(float friction) {
+        if (friction <= 0) throw new IllegalArgumentException("friction must be positive");
+        this.friction = friction;
+    }
+
+    boolean isFlinging() {
+        return count > 0;
+    }
+
+    boolean isFlinging(int thumbIndex) {
+        return find(thumbIndex) >= 0;
+    }
+
+    /**
+     * Starts or replaces the fling of a thumb
+     *
+     * @param thumbIndex  index of the thumb
+     * @param value       current value of the thumb
+     * @param velocity    start velocity in values per second
+     * @param minVelocity velocity in values per second below which the thumb stops
+     * @param origin      the value from which steps are counted
+     * @param step        the scale step, emitted values are origin + n * step
+     */
+    void fling(int thumbIndex, int value, float velocity, float minVelocity, int origin,
+               int step) {
+        if (Math.abs(velocity) <= minVelocity) return;
+        int slot = find(thumbIndex);
+        if (slot < 0) {
+            ensureCapacity(count + 1);
+            slot = count++;
+        }
+        indices[slot] = thumbIndex;
+        values[slot] = value;
+        positions[slot] = value;
+        velocities[slot] = velocity;
+        minVelocities[slot] = Math.abs(minVelocity);
+        origins[slot] = origin;
+        steps[slot] = Math.max(1, step);
+        times[slot] = clock.nanoTime();
+        if (!posted) {
+            posted = true;
+            clock.postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Stops the fling of a thumb without notifying the target
+     */
+    void cancel(int thumbIndex) {
+        int slot = find(thumbIndex);
+        if (slot >= 0) {
+            remove(slot);
+        }
+        if (count == 0 && posted) {
+            posted = false;
+            clock.removeFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Stops all flings without notifying the target
+     */
+    void cancelAll() {
+        count = 0;
+        if (posted) {
+            posted = false;
+            clock.removeFrameCallback(frameCallback);
+        }
+    }
+
+    void doFrame(long frameTimeNanos) {
+        posted = false;
+        for (int slot = count - 1; slot >= 0; slot--) {
+            float dt = (frameTimeNanos - times[slot]) / 1e9f;
+            if (dt <= 0) continue;
+            times[slot] = frameTimeNanos;
+
+            //exact integration of dv/dt = -friction * v over the frame
+            float decay = (float) Math.exp(-friction * dt);
+            positions[slot] += velocities[slot] * (1 - decay) / friction;
+            velocities[slot] *= decay;
+
+            int step = steps[slot];
+            int value = origins[slot] + Math.round((positions[slot] - origins[slot]) / step) * step;
+            boolean stop = Math.abs(velocities[slot]) < minVelocities[slot];
+            if (value != values[slot]) {
+                int thumbIndex = indices[slot];
+                int applied = target.onFlingValue(thumbIndex, value);
+                if (slot >= count || indices[slot] != thumbIndex) {
+                    //cancelled from the target
+                    continue;
+                }
+                values[slot] = applied;
+                //hit a limit or a neighbour thumb
+                stop |= applied != value;
+            }
+            if (stop) {
+                int thumbIndex = indices[slot];
+                remove(slot);
+                target.onFlingEnd(thumbIndex);
+            }
+        }
+        if (count > 0 && !posted) {
+            posted = true;
+            clock.postFrameCallback(frameCallback);
+        }
+    }
+
+    private int find(int thumbIndex) {
+        for (int i = 0; i < count; i++) {
+            if (indices[i] == thumbIndex) return i;
+        }
+        return -1;
+    }
+
+    private void remove(int slot) {
+        int last = --count;
+        if (slot != last) {
+            indices[slot] = indices[last];
+            values[slot] = values[last];
+            origins[slot] = origins[last];
+            steps[slot] = steps[last];
+            positions[slot] = positions[last];
+            velocities[slot] = velocities[last];
+            minVelocities[slot] = minVelocities[last];
+            times[slot] = times[last];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= indices.length) return;
+        int newCapacity = Math.max(capacity, indices.length * 2);
+        indices = copyOf(indices, newCapacity);
+        values = copyOf(values, newCapacity);
+        origins = copyOf(origins, newCapacity);
+        steps = copyOf(steps, newCapacity);
+        positions = copyOf(positions, newCapacity);
+        velocities = copyOf(velocities, newCapacity);
+        minVelocities = copyOf(minVelocities, newCapacity);
+        long[] newTimes = new long[newCapacity];
+        System.arraycopy(times, 0, newTimes, 0, count);
+        times = newTimes;
+    }
+
+    private int[] copyOf(int[] src, int capacity) {
+        int[] res = new int[capacity];
+        System.arraycopy(src, 0, res, 0, count);
+        return res;
+    }
+
+    private float[] copyOf(float[] src, int capacity) {
+        float[] res = new float[capacity];
+        System.arraycopy(src, 0, res, 0, count);
+        return res;
+    }
+}
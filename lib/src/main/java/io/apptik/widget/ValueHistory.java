@@ -0,0 +1,183 @@
+package io.apptik.widget;
+
+
+/**
+ * Undo/redo history of thumb values.
+ * <p/>
+ * Every entry only holds the thumbs that changed as (thumb index, value delta) pairs, so one
+ * entry of a range or multi thumb slider usually takes two ints. The pairs are kept in a fixed
+ * size ring of ints and the oldest entries are dropped when it is full, so recording never
+ * allocates once the number of thumbs stops growing.
+ */
+final class ValueHistory {
+
+    private final int maxEntries;
+    //ring of (index, delta) pairs
+    private final int[] data;
+    //ring of entries, start offset in data and number of pairs
+    private final int[] entryStarts;
+    private final int[] entryPairs;
+    //ring index of the oldest entry
+    private int first = 0;
+    //number of stored entries
+    private int count = 0;
+    //number of entries before the current state, undo is possible if > 0, redo if < count
+    private int cursor = 0;
+    //number of used ints in data
+    private int used = 0;
+
+    //the values at the current position of the history
+    private int[] state = new int[2];
+    //number of thumbs or -1 if no state has been set yet
+    private int size = -1;
+
+    /**
+     * @param maxEntries max number of undo steps
+     * @param maxChanges max number of thumb changes over all entries
+     */
+    ValueHistory(int maxEntries, int maxChanges) {
+        if (maxEntries < 1 || maxChanges < 1) {
+            throw new IllegalArgumentException(String.format("maxEntries(%d) maxChanges(%d)",
+                    maxEntries, maxChanges));
+        }
+        this.maxEntries = maxEntries;
+        this.data = new int[maxChanges * 2];
+        this.entryStarts = new int[maxEntries];
+        this.entryPairs = new int[maxEntries];
+    }
+
+    int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return number of thumbs of the recorded values or -1 if nothing was recorded
+     */
+    int size() {
+        return size;
+    }
+
+    boolean canUndo() {
+        return cursor > 0;
+    }
+
+    boolean canRedo() {
+        return cursor < count;
+    }
+
+    /**
+     * Drops all the entries and starts over from the given values
+     */
+    void reset(int[] values, int size) {
+        ensureState(size);
+        System.arraycopy(values, 0, state, 0, size);
+        this.size = size;
+        first = 0;
+        count = 0;
+        cursor = 0;
+        used = 0;
+    }
+
+    /**
+     * Adds an entry with the difference between the given values and the current state.
+     * Entries that could be redone are dropped. If the number of thumbs changed the history is
+     * reset instead.
+     *
+     * @return true if an entry was added, false if nothing changed
+     */
+    boolean record(int[] values, int size) {
+        if (size != this.size) {
+            reset(values, size);
+            return false;
+        }
+        int pairs = 0;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != state[i]) pairs++;
+        }
+        if (pairs == 0) return false;
+        if (pairs * 2 > data.length) {
+            //does not fit at all
+            reset(values, size);
+            return false;
+        }
+        //drop what could be redone
+        while (count > cursor) {
+            used -= entryPairs[(first + --count) % maxEntries] * 2;
+        }
+        //drop the oldest entries to make room
+        while (count == maxEntries || data.length - used < pairs * 2) {
+            used -= entryPairs[first] * 2;
+            first = (first + 1) % maxEntries;
+            count--;
+            cursor--;
+        }
+        int start = (count == 0) ? 0 : end(count - 1);
+        int pos = start;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != state[i]) {
+                data[pos] = i;
+                data[pos + 1] = values[i] - state[i];
+                pos = (pos + 2) % data.length;
+                state[i] = values[i];
+            }
+        }
+        int entry = (first + count) % maxEntries;
+        entryStarts[entry] = start;
+        entryPairs[entry] = pairs;
+        used += pairs * 2;
+        count++;
+        cursor = count;
+        return true;
+    }
+
+    /**
+     * Moves one entry back
+     *
+     * @param values receives the values after the undo, must hold at least {@link #size()}
+     *               values
+     * @return true if there was something to undo
+     */
+    boolean undo(int[] values) {
+        if (!canUndo()) return false;
+        cursor--;
+        apply(cursor, -1);
+        System.arraycopy(state, 0, values, 0, size);
+        return true;
+    }
+
+    /**
+     * Moves one entry forward
+     *
+     * @param values receives the values after the redo, must hold at least {@link #size()}
+     *               values
+     * @return true if there was something to redo
+     */
+    boolean redo(int[] values) {
+        if (!canRedo()) return false;
+        apply(cursor, 1);
+        cursor++;
+        System.arraycopy(state, 0, values, 0, size);
+        return true;
+    }
+
+    private void apply(int entryIndex, int sign) {
+        int entry = (first + entryIndex) % maxEntries;
+        int pos = entryStarts[entry];
+        for (int i = 0; i < entryPairs[entry]; i++) {
+            state[data[pos]] += sign * data[pos + 1];
+            pos = (pos + 2) % data.length;
+        }
+    }
+
+    //offset in data right after the given entry
+    private int end(int entryIndex) {
+        int entry = (first + entryIndex) % maxEntries;
+        return (entryStarts[entry] + entryPairs[entry] * 2) % data.length;
+    }
+
+    private void ensureState(int size) {
+        if (state.length < size) {
+            state = new int[Math.max(size, state.length * 2)];
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package io.apptik.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExecutorValuesBridgeTest {
+
+    /**
+     * Executor which runs its tasks only when told to.
+     */
+    static class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Worker which returns a copy of the values it was given.
+     */
+    static class CopyWorker implements ExecutorValuesBridge.Worker<int[]> {
+        final List<int[]> processed = new ArrayList<>();
+
+        @Override
+        public int[] process(int[] values, int count) {
+            int[] copy = Arrays.copyOf(values, count);
+            processed.add(copy);
+            return copy;
+        }
+    }
+
+    static class Results implements ExecutorValuesBridge.ResultListener<int[]> {
+        final List<int[]> results = new ArrayList<>();
+
+        @Override
+        public void onResult(int[] result) {
+            results.add(result);
+        }
+    }
+
+    private ManualExecutor executor;
+    private ManualExecutor main;
+    private CopyWorker worker;
+    private Results results;
+    private ExecutorValuesBridge<int[]> bridge;
+
+    @Before
+    public void setUp() {
+        executor = new ManualExecutor();
+        main = new ManualExecutor();
+        worker = new CopyWorker();
+        results = new Results();
+        bridge = new ExecutorValuesBridge<>(executor, main, worker, results);
+    }
+
+    @Test
+    public void onlyTheLatestValuesAreProcessed() {
+        bridge.publish(new int[]{1, 2}, 2);
+        bridge.publish(new int[]{3, 4, 5}, 3);
+        bridge.publish(new int[]{6, 7}, 2);
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+        main.runAll();
+
+        assertEquals(1, worker.processed.size());
+        assertArrayEquals(new int[]{6, 7}, worker.processed.get(0));
+        assertEquals(1, results.results.size());
+        assertArrayEquals(new int[]{6, 7}, results.results.get(0));
+        assertEquals(3, bridge.getPublishedCount());
+        assertEquals(2, bridge.getCoalescedCount());
+        assertEquals(1, bridge.getProcessedCount());
+        assertEquals(0, bridge.getDroppedResultCount());
+    }
+
+    @Test
+    public void valuesPublishedAfterADrainScheduleAnotherOne() {
+        bridge.publish(new int[]{1}, 1);
+        executor.runAll();
+        bridge.publish(new int[]{2}, 1);
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        main.runAll();
+
+        assertEquals(2, bridge.getProcessedCount());
+        assertEquals(0, bridge.getCoalescedCount());
+        //the first result was replaced before the main thread took it
+        assertEquals(1, bridge.getDroppedResultCount());
+        assertEquals(1, results.results.size());
+        assertArrayEquals(new int[]{2}, results.results.get(0));
+    }
+
+    @Test
+    public void resultOfReplacedValuesIsDropped() {
+        final int[] newer = {9, 9};
+        bridge = new ExecutorValuesBridge<>(executor, main,
+                new ExecutorValuesBridge.Worker<int[]>() {
+                    @Override
+                    public int[] process(int[] values, int count) {
+                        int[] copy = worker.process(values, count);
+                        if (worker.processed.size() == 1) {
+                            //the UI publishes while the worker is busy
+                            bridge.publish(newer, 2);
+                        }
+                        return copy;
+                    }
+                }, results);
+
+        bridge.publish(new int[]{1, 2}, 2);
+        executor.runAll();
+        main.runAll();
+
+        assertEquals(2, bridge.getProcessedCount());
+        assertEquals(1, bridge.getDroppedResultCount());
+        assertEquals(1, results.results.size());
+        assertArrayEquals(newer, results.results.get(0));
+    }
+
+    @Test
+    public void closedBridgeDeliversNothing() {
+        bridge.publish(new int[]{1}, 1);
+        executor.runAll();
+        bridge.close();
+        main.runAll();
+        bridge.publish(new int[]{2}, 1);
+        executor.runAll();
+
+        assertTrue(results.results.isEmpty());
+        assertEquals(1, bridge.getPublishedCount());
+        assertEquals(1, bridge.getProcessedCount());
+    }
+
+    @Test
+    public void failingWorkerDoesNotStopTheBridge() {
+        bridge = new ExecutorValuesBridge<>(executor, main,
+                new ExecutorValuesBridge.Worker<int[]>() {
+                    @Override
+                    public int[] process(int[] values, int count) {
+                        if (values[0] < 0) {
+                            throw new IllegalStateException("bad values");
+                        }
+                        return worker.process(values, count);
+                    }
+                }, results);
+
+        bridge.publish(new int[]{-1}, 1);
+        try {
+            executor.runAll();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        bridge.publish(new int[]{2}, 1);
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        main.runAll();
+
+        assertEquals(1, results.results.size());
+        assertArrayEquals(new int[]{2}, results.results.get(0));
+    }
+
+    @Test
+    public void valuesPublishedBeforeTheWorkerFailedAreStillProcessed() {
+        bridge = new ExecutorValuesBridge<>(executor, main,
+                new ExecutorValuesBridge.Worker<int[]>() {
+                    @Override
+                    public int[] process(int[] values, int count) {
+                        if (values[0] < 0) {
+                            bridge.publish(new int[]{3}, 1);
+                            throw new IllegalStateException("bad values");
+                        }
+                        return worker.process(values, count);
+                    }
+                }, results);
+
+        bridge.publish(new int[]{-1}, 1);
+        try {
+            executor.runAll();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        executor.runAll();
+        main.runAll();
+
+        assertEquals(1, results.results.size());
+        assertArrayEquals(new int[]{3}, results.results.get(0));
+    }
+
+    @Test
+    public void closeWhileProcessingDropsTheResult() {
+        bridge = new ExecutorValuesBridge<>(executor, main,
+                new ExecutorValuesBridge.Worker<int[]>() {
+                    @Override
+                    public int[] process(int[] values, int count) {
+                        int[] copy = worker.process(values, count);
+                        //the UI publishes and closes while the worker is busy
+                        bridge.publish(new int[]{2}, 1);
+                        bridge.close();
+                        return copy;
+                    }
+                }, results);
+
+        bridge.publish(new int[]{1}, 1);
+        executor.runAll();
+
+        assertTrue(main.tasks.isEmpty());
+        assertEquals(1, worker.processed.size());
+        assertTrue(results.results.isEmpty());
+    }
+
+    @Test
+    public void handOffAcrossThreads() throws Exception {
+        final int publishes = 200000;
+        final int count = 8;
+        final AtomicReference<String> error = new AtomicReference<>();
+        final AtomicInteger last = new AtomicInteger(-1);
+        final CountDownLatch done = new CountDownLatch(1);
+        ExecutorService background = Executors.newSingleThreadExecutor();
+        try {
+            bridge = new ExecutorValuesBridge<>(background, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    //delivered right away on the worker thread
+                    command.run();
+                }
+            }, new ExecutorValuesBridge.Worker<int[]>() {
+                int previous = -1;
+
+                @Override
+                public int[] process(int[] values, int count) {
+                    for (int i = 1; i < count; i++) {
+                        if (values[i] != values[0] + i) {
+                            error.compareAndSet(null, "torn values " + Arrays.toString(values));
+                        }
+                    }
+                    if (values[0] <= previous) {
+                        error.compareAndSet(null, values[0] + " after " + previous);
+                    }
+                    previous = values[0];
+                    return Arrays.copyOf(values, count);
+                }
+            }, new ExecutorValuesBridge.ResultListener<int[]>() {
+                @Override
+                public void onResult(int[] result) {
+                    last.set(result[0]);
+                    if (result[0] == publishes - 1) {
+                        done.countDown();
+                    }
+                }
+            });
+
+            int[] values = new int[count];
+            for (int p = 0; p < publishes; p++) {
+                for (int i = 0; i < count; i++) {
+                    values[i] = p + i;
+                }
+                bridge.publish(values, count);
+            }
+
+            assertTrue("last delivered " + last.get(), done.await(10, TimeUnit.SECONDS));
+        } finally {
+            background.shutdown();
+            assertTrue(background.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertNull(error.get());
+        assertEquals(publishes, bridge.getPublishedCount());
+        //every published value was either processed or replaced before it could be
+        assertEquals(publishes, bridge.getProcessedCount() + bridge.getCoalescedCount());
+    }
+}
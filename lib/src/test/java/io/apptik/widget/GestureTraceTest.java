@@ -0,0 +1,256 @@
+package io.apptik.widget;
+
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class GestureTraceTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 96;
+    private static final int SCALE = 1000;
+
+    private SliderHarness harness;
+    private GestureTrace.Recorder recorder;
+
+    @Before
+    public void setUp() {
+        harness = new SliderHarness(RuntimeEnvironment.application, 3, SCALE, WIDTH, HEIGHT);
+        recorder = new GestureTrace.Recorder();
+        harness.slider.setGestureRecorder(recorder);
+    }
+
+    @Test
+    public void eventsSurviveTheRoundTrip() throws IOException {
+        MotionEvent[] events = new MotionEvent[]{
+                obtain(0, MotionEvent.ACTION_DOWN, new int[]{0}, new float[]{100.3f, 40f}),
+                obtain(8, MotionEvent.ACTION_POINTER_DOWN | (1 << MotionEvent
+                        .ACTION_POINTER_INDEX_SHIFT), new int[]{0, 1},
+                        new float[]{101f, 40f, 900.55f, 41f}),
+                obtain(16, MotionEvent.ACTION_MOVE, new int[]{0, 1},
+                        new float[]{90f, 42.5f, 920f, 41f}),
+                obtain(1000, MotionEvent.ACTION_POINTER_UP, new int[]{0, 1},
+                        new float[]{90f, 42.5f, 930f, 41f}),
+                obtain(1016, MotionEvent.ACTION_UP, new int[]{1}, new float[]{931f, 40f}),
+        };
+        for (MotionEvent event : events) {
+            harness.slider.onTouchEvent(event);
+        }
+        GestureTrace recorded = recorder.finish();
+        assertEquals(0, recorder.getEventCount());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recorded.writeTo(out);
+        GestureTrace trace = GestureTrace.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(WIDTH, trace.getWidth());
+        assertEquals(HEIGHT, trace.getHeight());
+        assertEquals(events.length, trace.getEventCount());
+        assertEquals(1016, trace.getDurationMillis());
+        for (int i = 0; i < events.length; i++) {
+            MotionEvent event = events[i];
+            assertEquals(event.getEventTime(), trace.getEventTime(i));
+            assertEquals(event.getAction(), trace.getAction(i));
+            assertEquals(event.getPointerCount(), trace.getPointerCount(i));
+            for (int p = 0; p < event.getPointerCount(); p++) {
+                assertEquals(event.getPointerId(p), trace.getPointerId(i, p));
+                assertEquals(event.getX(p), trace.getX(i, p), 1 / 32f);
+                assertEquals(event.getY(p), trace.getY(i, p), 1 / 32f);
+            }
+            event.recycle();
+        }
+    }
+
+    @Test
+    public void replayReproducesTheValues() throws IOException {
+        MotionEvent[] drag = harness.drag(1, 100, 3, 16);
+        harness.replay(drag, false);
+        SliderHarness.recycle(drag);
+        int[] expected = new int[]{harness.slider.getThumb(0).getValue(),
+                harness.slider.getThumb(1).getValue(), harness.slider.getThumb(2).getValue()};
+        GestureTrace trace = GestureTrace.fromByteArray(recorder.finish().toByteArray());
+
+        SliderHarness other = new SliderHarness(RuntimeEnvironment.application, 3, SCALE,
+                trace.getWidth(), trace.getHeight());
+        GestureTrace.Replay replay = trace.replay(other.slider);
+
+        assertEquals(102, replay.getEventCount());
+        assertArrayEquals(expected, replay.getFinalValues());
+        assertTrue(replay.getValueChangeCount() > 90);
+        assertEquals(expected[1], replay.getValue(101, 1));
+        assertTrue(replay.getTotalNanos() >= replay.getMaxNanos());
+    }
+
+    @Test
+    public void historicalSamplesSurviveTheRoundTrip() throws IOException {
+        MotionEvent down = obtain(0, MotionEvent.ACTION_DOWN, new int[]{0},
+                new float[]{500f, 40f});
+        MotionEvent move = obtain(4, MotionEvent.ACTION_MOVE, new int[]{0},
+                new float[]{504.25f, 40f});
+        MotionEvent.PointerCoords coords = new MotionEvent.PointerCoords();
+        coords.x = 509.5f;
+        coords.y = 41f;
+        move.addBatch(8, new MotionEvent.PointerCoords[]{coords}, 0);
+        coords.x = 512.0625f;
+        coords.y = 41.25f;
+        move.addBatch(12, new MotionEvent.PointerCoords[]{coords}, 0);
+        coords.x = 515f;
+        coords.y = 41.5f;
+        move.addBatch(16, new MotionEvent.PointerCoords[]{coords}, 0);
+        MotionEvent up = obtain(32, MotionEvent.ACTION_UP, new int[]{0}, new float[]{515f, 41.5f});
+        harness.slider.onTouchEvent(down);
+        harness.slider.onTouchEvent(move);
+        harness.slider.onTouchEvent(up);
+
+        GestureTrace trace = GestureTrace.fromByteArray(recorder.finish().toByteArray());
+
+        assertEquals(3, trace.getEventCount());
+        assertEquals(0, trace.getHistorySize(0));
+        assertEquals(move.getHistorySize(), trace.getHistorySize(1));
+        assertEquals(16, trace.getEventTime(1));
+        assertEquals(32, trace.getDurationMillis());
+        for (int h = 0; h < move.getHistorySize(); h++) {
+            assertEquals(move.getHistoricalEventTime(h), trace.getHistoricalEventTime(1, h));
+            assertEquals(move.getHistoricalX(0, h), trace.getHistoricalX(1, 0, h), 1 / 32f);
+            assertEquals(move.getHistoricalY(0, h), trace.getHistoricalY(1, 0, h), 1 / 32f);
+        }
+        assertEquals(515f, trace.getX(1, 0), 1 / 32f);
+
+        MotionEvent[] replayed = trace.toMotionEvents(1000);
+        assertEquals(move.getHistorySize(), replayed[1].getHistorySize());
+        for (int h = 0; h < move.getHistorySize(); h++) {
+            assertEquals(1000 + move.getHistoricalEventTime(h),
+                    replayed[1].getHistoricalEventTime(h));
+            assertEquals(move.getHistoricalX(0, h), replayed[1].getHistoricalX(0, h), 1 / 32f);
+        }
+        assertEquals(1016, replayed[1].getEventTime());
+        assertEquals(515f, replayed[1].getX(), 1 / 32f);
+        SliderHarness.recycle(replayed);
+        down.recycle();
+        move.recycle();
+        up.recycle();
+    }
+
+    @Test
+    public void version1TracesCanBeRead() throws IOException {
+        //one down at x 10 recorded before historical samples were kept
+        GestureTrace trace = GestureTrace.fromByteArray(new byte[]{'M', 'S', 'G', 'T', 1, 10,
+                10, 1, 0, 0, 1, 0, (byte) 0xC0, 2, 0});
+        assertEquals(1, trace.getEventCount());
+        assertEquals(0, trace.getHistorySize(0));
+        assertEquals(10f, trace.getX(0, 0), 0f);
+    }
+
+    /**
+     * A drag of the middle thumb of the "Multiple Thumbs" example screen, 7 thumbs on the
+     * default 0..100 scale, with moves batching two samples each.
+     */
+    @Test
+    public void goldenManyDragReplays() throws IOException {
+        GestureTrace trace = readGolden("many_drag.trace");
+        int batched = 0;
+        for (int i = 0; i < trace.getEventCount(); i++) {
+            batched += trace.getHistorySize(i);
+        }
+        assertTrue(batched > 0);
+
+        SliderHarness first = new SliderHarness(RuntimeEnvironment.application, 7, 100,
+                trace.getWidth(), trace.getHeight());
+        int[] before = valuesOf(first.slider);
+        GestureTrace.Replay replay = trace.replay(first.slider);
+
+        final int last = trace.getEventCount() - 1;
+        int[] after = replay.getFinalValues();
+        MultiSlider.Thumb dragged = first.slider.getThumb(3);
+        assertEquals(first.slider.getValue((int) trace.getX(last, 0), dragged), after[3]);
+        assertTrue(after[3] > before[3]);
+        for (int t = 0; t < after.length; t++) {
+            if (t != 3) assertEquals(before[t], after[t]);
+        }
+
+        //the same input gives the same values on every replay
+        SliderHarness second = new SliderHarness(RuntimeEnvironment.application, 7, 100,
+                trace.getWidth(), trace.getHeight());
+        GestureTrace.Replay again = trace.replay(second.slider);
+        for (int i = 0; i <= last; i++) {
+            assertArrayEquals(replay.getValues(i), again.getValues(i));
+        }
+    }
+
+    static GestureTrace readGolden(String name) throws IOException {
+        InputStream in = GestureTraceTest.class.getResourceAsStream(name);
+        assertNotNull(name, in);
+        try {
+            return GestureTrace.readFrom(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int[] valuesOf(MultiSlider slider) {
+        int[] values = new int[slider.getThumbCount()];
+        for (int t = 0; t < values.length; t++) {
+            values[t] = slider.getThumb(t).getValue();
+        }
+        return values;
+    }
+
+    @Test
+    public void movesAreCompact() {
+        MotionEvent[] drag = harness.drag(1, 1000, 1.5f, 16);
+        harness.replay(drag, false);
+        SliderHarness.recycle(drag);
+        assertTrue(recorder.finish().toByteArray().length < 8 * 1002);
+    }
+
+    @Test
+    public void invalidDataFails() {
+        try {
+            GestureTrace.fromByteArray(new byte[]{'M', 'S', 'G', 'T', 1, 10, 10, 100});
+            fail();
+        } catch (IOException expected) {
+        }
+        try {
+            GestureTrace.fromByteArray(new byte[]{1, 2, 3, 4, 5});
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    /**
+     * @param coords x and y of each pointer
+     */
+    private static MotionEvent obtain(long time, int action, int[] ids, float[] coords) {
+        MotionEvent.PointerProperties[] properties =
+                new MotionEvent.PointerProperties[ids.length];
+        MotionEvent.PointerCoords[] pointerCoords = new MotionEvent.PointerCoords[ids.length];
+        for (int p = 0; p < ids.length; p++) {
+            properties[p] = new MotionEvent.PointerProperties();
+            properties[p].id = ids[p];
+            properties[p].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            pointerCoords[p] = new MotionEvent.PointerCoords();
+            pointerCoords[p].x = coords[p * 2];
+            pointerCoords[p].y = coords[p * 2 + 1];
+        }
+        return MotionEvent.obtain(0, time, action, ids.length, properties, pointerCoords, 0, 0,
+                1f, 1f, 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,118 @@
+package io.apptik.widget;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MotionPredictorTest {
+
+    private final MotionPredictor predictor = new MotionPredictor();
+
+    @Test
+    public void noSamples() {
+        assertEquals(0f, predictor.predict(16), 0f);
+        predictor.addSample(0, 100f);
+        assertEquals(100f, predictor.predict(16), 0f);
+        assertEquals(100f, predictor.getLastPosition(), 0f);
+    }
+
+    @Test
+    public void constantVelocityIsExtrapolated() {
+        for (long t = 0; t <= 40; t += 8) {
+            predictor.addSample(t, 100f + 0.5f * t);
+        }
+        assertEquals(120f + 8f, predictor.predict(16), 0.001f);
+        assertEquals(120f, predictor.predict(0), 0f);
+    }
+
+    @Test
+    public void reversalIsFollowed() {
+        //right at 1px/ms, then back at the same speed
+        for (long t = 0; t <= 48; t += 8) {
+            predictor.addSample(t, t);
+        }
+        float x = 48;
+        long t = 48;
+        for (int i = 0; i < 3; i++) {
+            t += 8;
+            x -= 8;
+            predictor.addSample(t, x);
+        }
+        //the fit still mixes both directions, but does not keep going right
+        float predicted = predictor.predict(16);
+        assertTrue("predicted " + predicted, predicted <= x + 16);
+        for (int i = 0; i < 6; i++) {
+            t += 8;
+            x -= 8;
+            predictor.addSample(t, x);
+        }
+        //only samples of the way back are left in the window
+        assertEquals(x - 16, predictor.predict(16), 0.001f);
+    }
+
+    @Test
+    public void sparseSamplesAreNotExtrapolated() {
+        predictor.addSample(0, 0f);
+        predictor.addSample(MotionPredictor.MAX_SAMPLE_AGE + 40, 100f);
+        //the previous sample is too old to give a velocity
+        assertEquals(100f, predictor.predict(16), 0f);
+
+        predictor.addSample(MotionPredictor.MAX_SAMPLE_AGE + 80, 120f);
+        //two samples within the window are enough
+        assertEquals(128f, predictor.predict(16), 0.001f);
+    }
+
+    @Test
+    public void sameTimeReplacesTheLastPosition() {
+        predictor.addSample(0, 0f);
+        predictor.addSample(10, 10f);
+        predictor.addSample(10, 20f);
+        assertEquals(20f, predictor.getLastPosition(), 0f);
+        assertEquals(40f, predictor.predict(10), 0.001f);
+    }
+
+    @Test
+    public void resetForgetsTheSamples() {
+        predictor.addSample(0, 0f);
+        predictor.addSample(10, 10f);
+        predictor.reset();
+        predictor.addSample(100, 50f);
+        assertEquals(50f, predictor.predict(16), 0f);
+    }
+
+    /**
+     * Feeds the golden drag trace, historical samples included, and compares the position
+     * predicted one event ahead with the position the next event reports.
+     */
+    @Test
+    public void goldenTracePredictionError() throws IOException {
+        GestureTrace trace = GestureTraceTest.readGolden("many_drag.trace");
+        float predictedError = 0;
+        float lagError = 0;
+        float maxPredictedError = 0;
+        int compared = 0;
+        for (int i = 0; i < trace.getEventCount() - 1; i++) {
+            for (int h = 0; h < trace.getHistorySize(i); h++) {
+                predictor.addSample(trace.getHistoricalEventTime(i, h),
+                        trace.getHistoricalX(i, 0, h));
+            }
+            predictor.addSample(trace.getEventTime(i), trace.getX(i, 0));
+            long horizon = trace.getEventTime(i + 1) - trace.getEventTime(i);
+            if (i == 0 || horizon <= 0) continue;
+            float next = trace.getX(i + 1, 0);
+            float error = Math.abs(predictor.predict(horizon) - next);
+            predictedError += error;
+            lagError += Math.abs(trace.getX(i, 0) - next);
+            maxPredictedError = Math.max(maxPredictedError, error);
+            compared++;
+        }
+        assertTrue(compared > 30);
+        //on average the prediction is well ahead of drawing the last position
+        assertTrue("prediction " + predictedError + " lag " + lagError,
+                predictedError < lagError / 2);
+        assertTrue("max error " + maxPredictedError, maxPredictedError < 4f);
+    }
+}
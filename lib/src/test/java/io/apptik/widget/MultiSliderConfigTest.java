@@ -0,0 +1,66 @@
+package io.apptik.widget;
+
+import android.content.Context;
+import android.util.AttributeSet;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import io.apptik.widget.mslider.R;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MultiSliderConfigTest {
+
+    @Test
+    public void sharedConfigGivesEachSliderItsOwnDrawables() {
+        Context context = RuntimeEnvironment.application;
+        MultiSliderConfig config = MultiSliderConfig.fromStyle(context);
+
+        MultiSlider first = new MultiSlider(context, config);
+        MultiSlider second = new MultiSlider(context, config);
+
+        assertNotNull(first.getThumb(0).getThumb());
+        assertNotSame(first.getThumb(0).getThumb(), second.getThumb(0).getThumb());
+        assertEquals(first.getThumbCount(), second.getThumbCount());
+    }
+
+    @Test
+    public void sliderAttributesAreAlwaysResolved() {
+        Context context = RuntimeEnvironment.application;
+        AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.thumbNumber, "3")
+                .build();
+
+        MultiSlider slider = new MultiSlider(context, attrs);
+        MultiSlider plain = new MultiSlider(context);
+
+        assertEquals(3, slider.getThumbCount());
+        assertEquals(2, plain.getThumbCount());
+    }
+
+    @Test
+    public void focusableIsSetOnlyWhenConfigured() {
+        Context context = RuntimeEnvironment.application;
+        AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(android.R.attr.focusable, "true")
+                .build();
+
+        assertFalse(MultiSliderConfig.fromStyle(context).isFocusableSet());
+        assertFalse(new MultiSlider(context).isFocusable());
+        assertTrue(new MultiSlider(context, attrs).isFocusable());
+        assertTrue(new MultiSlider(context, new MultiSliderConfig.Builder(context)
+                .setFocusable(true)
+                .build()).isFocusable());
+    }
+}
@@ -0,0 +1,531 @@
+package io.apptik.widget;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+import android.widget.FrameLayout;
+import android.widget.ScrollView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MultiSliderInteractionTest {
+
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 100;
+    //about 10 values per pixel, so a fine drag is easy to tell from an absolute one
+    private static final int SCALE = 10000;
+
+    private MultiSlider slider;
+    private int downValue;
+
+    @Before
+    public void setUp() {
+        slider = new MultiSlider(RuntimeEnvironment.application,
+                new MultiSliderConfig.Builder(RuntimeEnvironment.application)
+                        .setThumbNumber(1)
+                        .setScale(0, SCALE)
+                        .build());
+        layout(slider);
+    }
+
+    private static void layout(MultiSlider slider) {
+        slider.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        slider.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Drags the thumb 1px every 100ms, well below the precision slow velocity, and releases it
+     * at the last position.
+     *
+     * @return the value after the last move
+     */
+    private int slowDrag(MultiSlider.Thumb thumb, int moves) {
+        float x = thumb.getThumb().getBounds().centerX();
+        float y = HEIGHT / 2f;
+        slider.onTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, y, 0));
+        downValue = thumb.getValue();
+        for (int i = 1; i <= moves; i++) {
+            slider.onTouchEvent(MotionEvent.obtain(0, i * 100, MotionEvent.ACTION_MOVE, x + i, y,
+                    0));
+        }
+        int fine = thumb.getValue();
+        slider.onTouchEvent(MotionEvent.obtain(0, (moves + 1) * 100, MotionEvent.ACTION_UP,
+                x + moves, y, 0));
+        return fine;
+    }
+
+    @Test
+    public void precisionDragKeepsTheFineValueOnRelease() {
+        slider.setPrecisionDragEnabled(true);
+        MultiSlider.Thumb thumb = slider.getThumb(0);
+        thumb.setValue(SCALE / 2);
+
+        int fine = slowDrag(thumb, 20);
+
+        assertEquals(fine, thumb.getValue());
+        //20px at one step per pixel, an absolute drag would have moved about 200
+        assertTrue("moved " + (fine - downValue), Math.abs(fine - downValue - 20) <= 1);
+    }
+
+    @Test
+    public void precisionDragInScrollingContainerStartsAtTouchDown() {
+        ScrollView container = new ScrollView(RuntimeEnvironment.application);
+        container.addView(slider);
+        layout(slider);
+        slider.setPrecisionDragEnabled(true);
+        MultiSlider.Thumb thumb = slider.getThumb(0);
+        thumb.setValue(SCALE / 2);
+
+        int fine = slowDrag(thumb, 30);
+
+        assertEquals(fine, thumb.getValue());
+        //the slop is dragged with the fine gain as well, the thumb only jumps to the touch down
+        //position which is within a pixel of its center
+        assertTrue("moved " + (fine - SCALE / 2), Math.abs(fine - SCALE / 2 - 30) <= 15);
+    }
+
+    @Test
+    public void predictionStartsWithTheMoveThatStartsTheDrag() {
+        ScrollView container = new ScrollView(RuntimeEnvironment.application);
+        container.addView(slider);
+        layout(slider);
+        slider.setPredictionHorizon(16);
+        MultiSlider.Thumb thumb = slider.getThumb(0);
+        thumb.setValue(SCALE / 2);
+        float x = thumb.getThumb().getBounds().centerX();
+        float y = HEIGHT / 2f;
+
+        slider.onTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, y, 0));
+        //a batched move past the touch slop, its samples already give a velocity
+        MotionEvent move = MotionEvent.obtain(0, 8, MotionEvent.ACTION_MOVE, x + 10, y, 0);
+        MotionEvent.PointerCoords coords = new MotionEvent.PointerCoords();
+        coords.x = x + 20;
+        coords.y = y;
+        move.addBatch(16, new MotionEvent.PointerCoords[]{coords}, 0);
+        slider.onTouchEvent(move);
+
+        assertTrue(slider.getDrawValue(thumb) > thumb.getValue());
+    }
+
+    @Test
+    public void hoverPicksTheThumbATouchWouldPick() {
+        slider = new MultiSlider(RuntimeEnvironment.application,
+                new MultiSliderConfig.Builder(RuntimeEnvironment.application)
+                        .setThumbNumber(3)
+                        .setScale(0, SCALE)
+                        .build());
+        slider.setPadding(150, 0, 150, 0);
+        layout(slider);
+        slider.getThumb(2).setValue(9000);
+        slider.getThumb(1).setValue(5000);
+        slider.getThumb(0).setValue(1000);
+        AccessibilityManager am = (AccessibilityManager) RuntimeEnvironment.application
+                .getSystemService(Context.ACCESSIBILITY_SERVICE);
+        shadowOf(am).setEnabled(true);
+        shadowOf(am).setTouchExplorationEnabled(true);
+        //hover is only mapped once a service asked for the virtual views
+        slider.getAccessibilityNodeProvider();
+
+        assertTrue(slider.getPaddingLeft() > 0);
+        for (int i = 0; i < 3; i++) {
+            float x = slider.getThumb(i).getThumb().getBounds().centerX();
+            slider.dispatchHoverEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_HOVER_MOVE, x,
+                    HEIGHT / 2f, 0));
+            assertEquals(i, slider.getHoveredThumb());
+            assertEquals(slider.findClosestThumbIndex((int) x), slider.getHoveredThumb());
+        }
+    }
+
+    private MultiSlider threeThumbs() {
+        MultiSlider slider = new MultiSlider(RuntimeEnvironment.application,
+                new MultiSliderConfig.Builder(RuntimeEnvironment.application)
+                        .setThumbNumber(3)
+                        .setScale(0, 100)
+                        .build());
+        layout(slider);
+        return slider;
+    }
+
+    private static boolean key(MultiSlider slider, int keyCode) {
+        return slider.onKeyDown(keyCode, new KeyEvent(KeyEvent.ACTION_DOWN, keyCode));
+    }
+
+    @Test
+    public void dpadUpAndDownGoThroughTheThumbs() {
+        slider = threeThumbs();
+        assertSame(slider.getThumb(0), slider.getFocusedThumb());
+
+        assertTrue(key(slider, KeyEvent.KEYCODE_DPAD_DOWN));
+        assertSame(slider.getThumb(1), slider.getFocusedThumb());
+        assertTrue(key(slider, KeyEvent.KEYCODE_DPAD_DOWN));
+        assertSame(slider.getThumb(2), slider.getFocusedThumb());
+        //past the last thumb the focus can leave the slider
+        assertFalse(key(slider, KeyEvent.KEYCODE_DPAD_DOWN));
+
+        assertTrue(key(slider, KeyEvent.KEYCODE_DPAD_UP));
+        assertSame(slider.getThumb(1), slider.getFocusedThumb());
+    }
+
+    @Test
+    public void directionalFocusStartsAtTheNearThumb() {
+        slider = threeThumbs();
+        slider.onFocusChanged(true, View.FOCUS_UP, null);
+        assertSame(slider.getThumb(2), slider.getFocusedThumb());
+        slider.onFocusChanged(true, View.FOCUS_DOWN, null);
+        assertSame(slider.getThumb(0), slider.getFocusedThumb());
+        slider.onFocusChanged(true, View.FOCUS_LEFT, null);
+        assertSame(slider.getThumb(2), slider.getFocusedThumb());
+    }
+
+    @Test
+    public void keyAgainstANeighbourIsNotConsumed() {
+        slider = threeThumbs();
+        slider.getThumb(1).setValue(50);
+        slider.getThumb(0).setValue(50);
+
+        assertFalse(key(slider, KeyEvent.KEYCODE_DPAD_RIGHT));
+        assertTrue(key(slider, KeyEvent.KEYCODE_DPAD_LEFT));
+    }
+
+    @Test
+    public void setThumbValuesPassesTheOldNeighboursInOneBatch() {
+        slider = threeThumbs();
+        slider.setThumbValues(10, 20, 30);
+        final int[] batches = new int[1];
+        slider.addOnThumbValuesChangeListener(new MultiSlider.OnThumbValuesChangeListener() {
+            @Override
+            public void onValuesChanged(MultiSlider multiSlider, MultiSlider.ThumbValues values) {
+                batches[0]++;
+            }
+        });
+
+        slider.setThumbValues(80, 90, 95);
+        assertEquals(1, batches[0]);
+        assertEquals(80, slider.getThumb(0).getValue());
+        assertEquals(95, slider.getThumb(2).getValue());
+
+        slider.setThumbValues(1, 2);
+        assertEquals(2, batches[0]);
+        assertEquals(2, slider.getThumb(1).getValue());
+        assertEquals(95, slider.getThumb(2).getValue());
+    }
+
+    @Test
+    public void shrinkingTheScaleReportsTheClampedThumbsInOneBatch() {
+        slider = threeThumbs();
+        slider.setThumbValues(10, 60, 90);
+        final int[] batches = new int[1];
+        final boolean[] changed = new boolean[3];
+        slider.addOnThumbValuesChangeListener(new MultiSlider.OnThumbValuesChangeListener() {
+            @Override
+            public void onValuesChanged(MultiSlider multiSlider, MultiSlider.ThumbValues values) {
+                batches[0]++;
+                for (int i = 0; i < values.size(); i++) {
+                    changed[i] = values.isChanged(i);
+                }
+            }
+        });
+
+        slider.setMax(50);
+
+        assertEquals(1, batches[0]);
+        assertFalse(changed[0]);
+        assertTrue(changed[1]);
+        assertTrue(changed[2]);
+        assertEquals(50, slider.getThumb(1).getValue());
+        assertEquals(50, slider.getThumb(2).getValue());
+    }
+
+    private static MultiSlider.Model model(final int scaleMax, final int... values) {
+        return new MultiSlider.Model() {
+            @Override
+            public int getThumbCount() {
+                return values.length;
+            }
+
+            @Override
+            public int getScaleMin() {
+                return 0;
+            }
+
+            @Override
+            public int getScaleMax() {
+                return scaleMax;
+            }
+
+            @Override
+            public int getThumbValue(int thumbIndex) {
+                return values[thumbIndex];
+            }
+
+            @Override
+            public int getThumbMin(int thumbIndex) {
+                return 0;
+            }
+
+            @Override
+            public int getThumbMax(int thumbIndex) {
+                return scaleMax;
+            }
+        };
+    }
+
+    @Test
+    public void bindDuringADragStopsTheTracking() {
+        final int[] starts = new int[1];
+        final int[] stops = new int[1];
+        slider.addOnTrackingChangeListener(new MultiSlider.OnTrackingChangeListener() {
+            @Override
+            public void onStartTrackingTouch(MultiSlider multiSlider, MultiSlider.Thumb thumb,
+                                             int value) {
+                starts[0]++;
+            }
+
+            @Override
+            public void onStopTrackingTouch(MultiSlider multiSlider, MultiSlider.Thumb thumb,
+                                            int value) {
+                stops[0]++;
+            }
+        });
+        float x = slider.getThumb(0).getThumb().getBounds().centerX();
+        slider.onTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, HEIGHT / 2f, 0));
+        assertEquals(1, starts[0]);
+
+        slider.bind(model(SCALE * 10, 500));
+
+        assertEquals(1, stops[0]);
+        assertFalse(slider.isPressed());
+        //the key step follows the bound scale like with setMax()
+        assertEquals(SCALE / 2, slider.getKeyProgressIncrement());
+    }
+
+    /**
+     * Parent which keeps the accessibility events sent by its children
+     */
+    static class EventRecorder extends FrameLayout {
+        final List<AccessibilityEvent> events = new ArrayList<>();
+
+        EventRecorder(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean requestSendAccessibilityEvent(View child, AccessibilityEvent event) {
+            events.add(AccessibilityEvent.obtain(event));
+            return true;
+        }
+
+        List<AccessibilityEvent> ofType(int type) {
+            List<AccessibilityEvent> res = new ArrayList<>();
+            for (AccessibilityEvent event : events) {
+                if (event.getEventType() == type) res.add(event);
+            }
+            return res;
+        }
+    }
+
+    private static void enableAccessibility() {
+        AccessibilityManager am = (AccessibilityManager) RuntimeEnvironment.application
+                .getSystemService(Context.ACCESSIBILITY_SERVICE);
+        shadowOf(am).setEnabled(true);
+    }
+
+    @Test
+    public void tapAnnouncesTheFinalValue() {
+        EventRecorder parent = new EventRecorder(RuntimeEnvironment.application);
+        parent.addView(slider);
+        layout(slider);
+        MultiSlider.Thumb thumb = slider.getThumb(0);
+        thumb.setValue(SCALE / 2);
+        enableAccessibility();
+        slider.getAccessibilityNodeProvider();
+
+        float x = WIDTH * 3 / 4f;
+        slider.onTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, HEIGHT / 2f, 0));
+        slider.onTouchEvent(MotionEvent.obtain(0, 50, MotionEvent.ACTION_UP, x, HEIGHT / 2f, 0));
+
+        assertTrue(thumb.getValue() > SCALE / 2);
+        List<AccessibilityEvent> scrolled = parent.ofType(AccessibilityEvent.TYPE_VIEW_SCROLLED);
+        assertEquals(1, scrolled.size());
+        assertEquals(thumb.getValue() - slider.getMin(), scrolled.get(0).getCurrentItemIndex());
+    }
+
+    @Test
+    public void savedStateRestoresTheThumbs() {
+        MultiSlider source = threeThumbs();
+        source.setStep(2);
+        source.setThumbValues(10, 40, 80);
+        source.getThumb(0).setMax(30);
+        source.getThumb(2).setMin(60);
+        source.getThumb(1).setEnabled(false);
+        source.getThumb(2).setInvisibleThumb(true);
+
+        Parcel parcel = Parcel.obtain();
+        source.onSaveInstanceState().writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        Parcelable state = MultiSlider.SavedState.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+        slider.onRestoreInstanceState(state);
+
+        assertEquals(3, slider.getThumbCount());
+        assertEquals(100, slider.getMax());
+        assertEquals(2, slider.getStep());
+        //the key step follows the restored scale
+        assertEquals(source.getKeyProgressIncrement(), slider.getKeyProgressIncrement());
+        for (int i = 0; i < 3; i++) {
+            MultiSlider.Thumb expected = source.getThumb(i);
+            MultiSlider.Thumb thumb = slider.getThumb(i);
+            assertEquals(expected.getValue(), thumb.getValue());
+            assertEquals(expected.getMin(), thumb.getMin());
+            assertEquals(expected.getMax(), thumb.getMax());
+            assertEquals(expected.isEnabled(), thumb.isEnabled());
+            assertEquals(expected.isInvisibleThumb(), thumb.isInvisibleThumb());
+        }
+        assertEquals(30, slider.getThumb(0).getMax());
+        assertFalse(slider.getThumb(1).isEnabled());
+        assertTrue(slider.getThumb(2).isInvisibleThumb());
+    }
+
+    @Test
+    public void providerDescribesTheThumbs() {
+        slider = threeThumbs();
+        slider.setThumbValues(0, 50, 100);
+        slider.getThumb(1).setEnabled(false);
+        enableAccessibility();
+        AccessibilityNodeProvider provider = slider.getAccessibilityNodeProvider();
+
+        AccessibilityNodeInfo root = provider.createAccessibilityNodeInfo(View.NO_ID);
+        assertEquals(3, root.getChildCount());
+
+        AccessibilityNodeInfo first = provider.createAccessibilityNodeInfo(0);
+        assertEquals(slider.getThumb(0).getA11yText(), first.getText().toString());
+        assertTrue(first.isEnabled());
+        List<AccessibilityNodeInfo.AccessibilityAction> actions = first.getActionList();
+        assertFalse(actions.contains(AccessibilityNodeInfo.AccessibilityAction
+                .ACTION_SCROLL_BACKWARD));
+        assertTrue(actions.contains(AccessibilityNodeInfo.AccessibilityAction
+                .ACTION_SCROLL_FORWARD));
+
+        assertFalse(provider.createAccessibilityNodeInfo(1).isEnabled());
+        assertFalse(provider.createAccessibilityNodeInfo(2).getActionList()
+                .contains(AccessibilityNodeInfo.AccessibilityAction.ACTION_SCROLL_FORWARD));
+
+        //the text is only rebuilt when the value changes
+        String text = slider.getThumb(0).getA11yText();
+        assertSame(text, provider.createAccessibilityNodeInfo(0).getText());
+        slider.getThumb(0).setValue(10);
+        assertTrue(provider.createAccessibilityNodeInfo(0).getText().toString().endsWith("10"));
+    }
+
+    @Test
+    public void thumbWithoutDrawableKeepsTheCentersOrdered() {
+        slider = threeThumbs();
+        slider.setThumbValues(10, 50, 90);
+        slider.getThumb(1).setThumb(null);
+        int first = slider.getThumb(0).getThumb().getBounds().centerX();
+        int last = slider.getThumb(2).getThumb().getBounds().centerX();
+
+        assertEquals(0, slider.findClosestThumbIndex(first));
+        assertEquals(2, slider.findClosestThumbIndex(last));
+
+        //with only the last thumb drawn a tap anywhere picks it
+        slider.getThumb(0).setThumb(null);
+        slider.onTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, HEIGHT / 2f, 0));
+        slider.onTouchEvent(MotionEvent.obtain(0, 50, MotionEvent.ACTION_UP, 0, HEIGHT / 2f, 0));
+        assertEquals(10, slider.getThumb(0).getValue());
+        assertEquals(50, slider.getThumb(1).getValue());
+        assertEquals(50, slider.getThumb(2).getValue());
+    }
+
+    @Test
+    public void rangeDragMovesOnlyThePair() {
+        slider = new MultiSlider(RuntimeEnvironment.application,
+                new MultiSliderConfig.Builder(RuntimeEnvironment.application)
+                        .setThumbNumber(5)
+                        .setScale(0, 100)
+                        .build());
+        layout(slider);
+        slider.setThumbValues(10, 30, 50, 70, 90);
+        slider.setRangeDragEnabled(true);
+        slider.setMetricsEnabled(true);
+        final int[] calls = new int[2];
+        slider.addOnThumbValueChangeListener(new MultiSlider.OnThumbValueChangeListener() {
+            @Override
+            public void onValueChanged(MultiSlider multiSlider, MultiSlider.Thumb thumb,
+                                       int thumbIndex, int value) {
+                calls[0]++;
+            }
+        });
+        slider.addOnThumbValuesChangeListener(new MultiSlider.OnThumbValuesChangeListener() {
+            @Override
+            public void onValuesChanged(MultiSlider multiSlider, MultiSlider.ThumbValues values) {
+                calls[1]++;
+            }
+        });
+        float x = (slider.getThumb(1).getThumb().getBounds().centerX()
+                + slider.getThumb(2).getThumb().getBounds().centerX()) / 2f;
+        float y = HEIGHT / 2f;
+        slider.onTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, y, 0));
+        slider.getMetrics().reset();
+        slider.onTouchEvent(MotionEvent.obtain(0, 50, MotionEvent.ACTION_MOVE, x + 50, y, 0));
+        //the pair and the range after it, not the thumbs before or after
+        assertTrue(slider.getMetrics().getGeometryUpdates() <= 3);
+        slider.onTouchEvent(MotionEvent.obtain(0, 100, MotionEvent.ACTION_UP, x + 50, y, 0));
+
+        int delta = slider.getThumb(1).getValue() - 30;
+        assertTrue("moved " + delta, delta > 0);
+        assertEquals(50 + delta, slider.getThumb(2).getValue());
+        assertEquals(10, slider.getThumb(0).getValue());
+        assertEquals(70, slider.getThumb(3).getValue());
+        //one call per thumb for the per thumb listeners, one per move for the values listeners
+        assertEquals(2, calls[0]);
+        assertEquals(1, calls[1]);
+        Drawable nextRange = slider.getThumb(3).getRange();
+        if (nextRange != null) {
+            assertEquals(slider.getThumb(2).getThumb().getBounds().left,
+                    nextRange.getBounds().left);
+        }
+    }
+
+    @Test
+    public void undoKeepsTheThumbsApart() {
+        slider = threeThumbs();
+        slider.setHistoryEnabled(true);
+        slider.setThumbValues(10, 12, 14);
+        slider.recordHistory();
+        slider.setThumbValues(40, 50, 60);
+        slider.recordHistory();
+        slider.setStepsThumbsApart(5);
+
+        assertTrue(slider.undo());
+
+        assertEquals(10, slider.getThumb(0).getValue());
+        assertEquals(15, slider.getThumb(1).getValue());
+        assertEquals(20, slider.getThumb(2).getValue());
+    }
+}
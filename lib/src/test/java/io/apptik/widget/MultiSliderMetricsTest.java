@@ -0,0 +1,66 @@
+package io.apptik.widget;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MultiSliderMetricsTest {
+
+    private MultiSlider slider;
+    private MultiSliderMetrics metrics;
+
+    @Before
+    public void setUp() {
+        slider = new MultiSlider(RuntimeEnvironment.application);
+        slider.measure(View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY));
+        slider.layout(0, 0, 1000, 100);
+        slider.setMetricsEnabled(true);
+        metrics = slider.getMetrics();
+    }
+
+    @Test
+    public void disabledByDefault() {
+        assertNull(new MultiSlider(RuntimeEnvironment.application).getMetrics());
+    }
+
+    @Test
+    public void valueChangeIsCounted() {
+        slider.setOnThumbValueChangeListener(new MultiSlider.SimpleChangeListener());
+        slider.getThumb(0).setValue(10);
+        assertEquals(1, metrics.getDispatches());
+        assertEquals(1, metrics.getGeometryUpdates());
+        assertTrue(metrics.getInvalidations() > 0);
+        assertEquals(0, metrics.getLayoutRequests());
+    }
+
+    @Test
+    public void resetClearsTheCounters() {
+        slider.getThumb(0).setValue(10);
+        slider.requestLayout();
+        metrics.reset();
+        assertEquals(0, metrics.getInvalidations());
+        assertEquals(0, metrics.getLayoutRequests());
+        assertEquals(0, metrics.getGeometryUpdates());
+    }
+
+    @Test
+    public void unchangedValueDoesNoWork() {
+        slider.getThumb(0).setValue(10);
+        metrics.reset();
+        slider.getThumb(0).setValue(10);
+        assertEquals(0, metrics.getGeometryUpdates());
+        assertEquals(0, metrics.getInvalidations());
+    }
+}
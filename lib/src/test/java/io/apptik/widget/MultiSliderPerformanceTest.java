@@ -0,0 +1,151 @@
+package io.apptik.widget;
+
+import android.view.MotionEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Regression checks of the draw, touch and size change paths.
+ * <p/>
+ * Only counts are checked, they do not depend on the speed of the machine: the bytes allocated
+ * and the work recorded by {@link MultiSliderMetrics}. A drag must not allocate once it started,
+ * a single object per event is enough to fail, and it must update only the dragged thumb
+ * whatever the number of thumbs. The timings are measured on a device by the benchmark module.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MultiSliderPerformanceTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 96;
+    private static final int SCALE = 100000;
+
+    private static final int WARMUP = 2000;
+    private static final int MOVES = 5000;
+
+    //less than the smallest object
+    private static final double MAX_DRAG_BYTES_PER_EVENT = 16;
+    private static final double MAX_RESIZE_BYTES_PER_EVENT = 16;
+    //the dragged thumb's old bounds plus the update of the new position
+    private static final double MAX_INVALIDATIONS_PER_MOVE = 2;
+    //the bounds of the dragged thumb only
+    private static final double MAX_GEOMETRY_UPDATES_PER_MOVE = 1;
+
+    private SliderHarness harness;
+    private MotionEvent[] events;
+
+    @Before
+    public void setUp() {
+        harness = new SliderHarness(RuntimeEnvironment.application, 10, SCALE, WIDTH, HEIGHT);
+    }
+
+    @After
+    public void tearDown() {
+        if (events != null) {
+            SliderHarness.recycle(events);
+        }
+    }
+
+    @Test
+    public void dragDoesNotAllocate() {
+        assumeTrue(harness.canMeasureAllocations());
+        SliderHarness.Stats stats = measureDrag(false);
+        assertTrue(stats.toString(), stats.bytesPerEvent() < MAX_DRAG_BYTES_PER_EVENT);
+    }
+
+    @Test
+    public void dragInvalidatesOnlyTheMovedThumb() {
+        SliderHarness.Stats stats = measureDrag(false);
+        assertTrue(stats.toString(),
+                stats.invalidationsPerEvent() <= MAX_INVALIDATIONS_PER_MOVE);
+        assertEquals(stats.toString(), 0, stats.layoutRequests);
+    }
+
+    @Test
+    public void dragUpdatesOnlyTheMovedThumb() {
+        SliderHarness.Stats stats = measureDrag(false);
+        assertTrue(stats.toString(),
+                stats.geometryUpdatesPerEvent() <= MAX_GEOMETRY_UPDATES_PER_MOVE);
+    }
+
+    @Test
+    public void dragWithManyThumbsUpdatesOnlyTheMovedThumb() {
+        harness = new SliderHarness(RuntimeEnvironment.application, 1000, SCALE, WIDTH, HEIGHT);
+        SliderHarness.Stats stats = measureDrag(false);
+        assertTrue(stats.toString(),
+                stats.geometryUpdatesPerEvent() <= MAX_GEOMETRY_UPDATES_PER_MOVE);
+        assertTrue(stats.toString(),
+                stats.invalidationsPerEvent() <= MAX_INVALIDATIONS_PER_MOVE);
+        assertEquals(stats.toString(), 0, stats.layoutRequests);
+    }
+
+    @Test
+    public void drawDoesNoLayoutWork() {
+        harness.draw(WARMUP);
+        SliderHarness.Stats stats = harness.draw(MOVES);
+        assertEquals(stats.toString(), 0, stats.invalidations);
+        assertEquals(stats.toString(), 0, stats.geometryUpdates);
+        assertEquals(stats.toString(), 0, stats.layoutRequests);
+    }
+
+    @Test
+    public void dragAndDrawUpdatesOnlyTheMovedThumb() {
+        SliderHarness.Stats stats = measureDrag(true);
+        assertTrue(stats.toString(),
+                stats.geometryUpdatesPerEvent() <= MAX_GEOMETRY_UPDATES_PER_MOVE);
+        assertEquals(stats.toString(), 0, stats.layoutRequests);
+    }
+
+    @Test
+    public void resizeDoesNotAllocate() {
+        assumeTrue(harness.canMeasureAllocations());
+        harness.resize(WARMUP, 100);
+        SliderHarness.Stats stats = harness.resize(MOVES, 100);
+        assertTrue(stats.toString(), stats.bytesPerEvent() < MAX_RESIZE_BYTES_PER_EVENT);
+    }
+
+    @Test
+    public void resizeUpdatesTheTrackAndEachThumbOnce() {
+        harness.resize(WARMUP, 100);
+        SliderHarness.Stats stats = harness.resize(MOVES, 100);
+        assertEquals(stats.toString(), MOVES * (harness.slider.getThumbCount() + 1),
+                stats.geometryUpdates);
+        assertEquals(stats.toString(), 0, stats.layoutRequests);
+    }
+
+    @Test
+    public void dragMovesTheThumb() {
+        int before = harness.slider.getThumb(5).getValue();
+        events = harness.drag(5, 10, 2, 16);
+        harness.replay(events, false);
+        assertTrue(harness.slider.getThumb(5).getValue() > before);
+    }
+
+    /**
+     * Holds a thumb down and replays the same moves for the warmup and the measurement
+     */
+    private SliderHarness.Stats measureDrag(boolean draw) {
+        int thumb = harness.slider.getThumbCount() / 2;
+        MotionEvent[] down = harness.drag(thumb, 0, 0, 16);
+        events = harness.wiggle(thumb, MOVES, 20);
+        try {
+            harness.replay(down, 0, 1, false);
+            harness.replay(events, 0, WARMUP, draw);
+            SliderHarness.Stats stats = harness.replay(events, draw);
+            harness.replay(down, 1, 2, false);
+            return stats;
+        } finally {
+            SliderHarness.recycle(down);
+        }
+    }
+}
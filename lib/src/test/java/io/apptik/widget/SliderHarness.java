@@ -0,0 +1,192 @@
+package io.apptik.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Drives a {@link MultiSlider} off-device: lays it out, replays prepared {@link MotionEvent}s,
+ * draws it to a bitmap backed {@link Canvas} and counts the work recorded by the slider metrics
+ * and the bytes allocated by the calling thread.
+ * <p/>
+ * The events are created before the measurement starts, so only the work done by the slider
+ * is counted.
+ */
+final class SliderHarness {
+
+    final MultiSlider slider;
+    private final Canvas canvas;
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    SliderHarness(Context context, int thumbs, int scaleMax, int width, int height) {
+        MultiSliderConfig config = new MultiSliderConfig.Builder(context)
+                .setThumbNumber(thumbs)
+                .setScale(0, scaleMax)
+                .build();
+        slider = new MultiSlider(context, config);
+        slider.setMetricsEnabled(true);
+        slider.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        slider.layout(0, 0, width, height);
+        canvas = new Canvas(Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threadBean = null;
+        }
+    }
+
+    /**
+     * @return true if {@link Stats#allocatedBytes} can be measured on this JVM
+     */
+    boolean canMeasureAllocations() {
+        return threadBean != null;
+    }
+
+    /**
+     * Creates a drag of a thumb: a down on its center followed by moves of dx pixels each and
+     * an up at the last position.
+     */
+    MotionEvent[] drag(int thumbIndex, int moves, float dx, long frameMillis) {
+        MotionEvent[] events = new MotionEvent[moves + 2];
+        float x = slider.getThumb(thumbIndex).getThumb().getBounds().centerX();
+        float y = slider.getHeight() / 2f;
+        long downTime = 0;
+        events[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        for (int i = 1; i <= moves; i++) {
+            x += dx;
+            events[i] = MotionEvent.obtain(downTime, i * frameMillis, MotionEvent.ACTION_MOVE,
+                    x, y, 0);
+        }
+        events[moves + 1] = MotionEvent.obtain(downTime, (moves + 1) * frameMillis,
+                MotionEvent.ACTION_UP, x, y, 0);
+        return events;
+    }
+
+    /**
+     * Moves that go back and forth over the same pixels, so they can be replayed any number of
+     * times within a single down/up.
+     */
+    MotionEvent[] wiggle(int thumbIndex, int moves, int amplitude) {
+        MotionEvent[] events = new MotionEvent[moves];
+        float x = slider.getThumb(thumbIndex).getThumb().getBounds().centerX();
+        float y = slider.getHeight() / 2f;
+        for (int i = 0; i < moves; i++) {
+            events[i] = MotionEvent.obtain(0, i + 1, MotionEvent.ACTION_MOVE,
+                    x + (i % (amplitude * 2 + 1)) - amplitude, y, 0);
+        }
+        return events;
+    }
+
+    static void recycle(MotionEvent[] events) {
+        for (MotionEvent event : events) {
+            event.recycle();
+        }
+    }
+
+    /**
+     * Dispatches the events to the slider, drawing a frame after each one if draw is set
+     */
+    Stats replay(MotionEvent[] events, boolean draw) {
+        return replay(events, 0, events.length, draw);
+    }
+
+    Stats replay(MotionEvent[] events, int from, int to, boolean draw) {
+        Stats stats = start();
+        for (int i = from; i < to; i++) {
+            slider.onTouchEvent(events[i]);
+            if (draw) {
+                slider.draw(canvas);
+            }
+        }
+        return stop(stats, to - from);
+    }
+
+    /**
+     * Draws the slider the given number of times
+     */
+    Stats draw(int frames) {
+        Stats stats = start();
+        for (int i = 0; i < frames; i++) {
+            slider.draw(canvas);
+        }
+        return stop(stats, frames);
+    }
+
+    /**
+     * Alternates the width of the slider between its current one and width - delta
+     */
+    Stats resize(int times, int delta) {
+        final int width = slider.getWidth();
+        final int height = slider.getHeight();
+        Stats stats = start();
+        for (int i = 0; i < times; i++) {
+            slider.layout(0, 0, (i % 2 == 0) ? width - delta : width, height);
+        }
+        stats = stop(stats, times);
+        slider.layout(0, 0, width, height);
+        return stats;
+    }
+
+    private Stats start() {
+        Stats stats = new Stats();
+        stats.invalidations = slider.getMetrics().getInvalidations();
+        stats.layoutRequests = slider.getMetrics().getLayoutRequests();
+        stats.geometryUpdates = slider.getMetrics().getGeometryUpdates();
+        stats.allocatedBytes = allocatedBytes();
+        return stats;
+    }
+
+    private Stats stop(Stats stats, int events) {
+        long allocated = allocatedBytes();
+        stats.allocatedBytes = (allocated < 0) ? -1 : allocated - stats.allocatedBytes;
+        stats.invalidations = slider.getMetrics().getInvalidations() - stats.invalidations;
+        stats.layoutRequests = slider.getMetrics().getLayoutRequests() - stats.layoutRequests;
+        stats.geometryUpdates = slider.getMetrics().getGeometryUpdates()
+                - stats.geometryUpdates;
+        stats.events = events;
+        return stats;
+    }
+
+    private long allocatedBytes() {
+        if (threadBean == null) return -1;
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    static final class Stats {
+        int events;
+        //-1 if not supported
+        long allocatedBytes;
+        long invalidations;
+        long layoutRequests;
+        long geometryUpdates;
+
+        double bytesPerEvent() {
+            return (double) allocatedBytes / events;
+        }
+
+        double invalidationsPerEvent() {
+            return (double) invalidations / events;
+        }
+
+        double geometryUpdatesPerEvent() {
+            return (double) geometryUpdates / events;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("events: %d, bytes/event: %.1f, invalidations/event: %.2f, " +
+                            "geometry updates/event: %.2f, layout requests: %d", events,
+                    bytesPerEvent(), invalidationsPerEvent(), geometryUpdatesPerEvent(),
+                    layoutRequests);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package io.apptik.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ThumbFlingerTest {
+
+    static final long FRAME = 16_666_667L;
+
+    /**
+     * Frame clock which runs frames only when told to.
+     */
+    static class FakeFrameClock implements ThumbFlinger.FrameClock {
+        long now = 1_000_000_000L;
+        ThumbFlinger.FrameCallback pending;
+        int posts = 0;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public void postFrameCallback(ThumbFlinger.FrameCallback callback) {
+            pending = callback;
+            posts++;
+        }
+
+        @Override
+        public void removeFrameCallback(ThumbFlinger.FrameCallback callback) {
+            if (pending == callback) pending = null;
+        }
+
+        /**
+         * @return true if there was a callback to run
+         */
+        boolean frame() {
+            now += FRAME;
+            ThumbFlinger.FrameCallback callback = pending;
+            pending = null;
+            if (callback == null) return false;
+            callback.doFrame(now);
+            return true;
+        }
+
+        int runFrames(int max) {
+            int frames = 0;
+            while (frames < max && frame()) {
+                frames++;
+            }
+            return frames;
+        }
+    }
+
+    /**
+     * Target with a min/max limit per thumb recording the emitted values.
+     */
+    static class RecordingTarget implements ThumbFlinger.Target {
+        int min = 0;
+        int max = 1000;
+        final List<int[]> values = new ArrayList<>();
+        final List<Integer> ended = new ArrayList<>();
+
+        @Override
+        public int onFlingValue(int thumbIndex, int value) {
+            int applied = Math.max(min, Math.min(max, value));
+            values.add(new int[]{thumbIndex, applied});
+            return applied;
+        }
+
+        @Override
+        public void onFlingEnd(int thumbIndex) {
+            ended.add(thumbIndex);
+        }
+    }
+
+    FakeFrameClock clock;
+    RecordingTarget target;
+    ThumbFlinger flinger;
+
+    @Before
+    public void setUp() {
+        clock = new FakeFrameClock();
+        target = new RecordingTarget();
+        flinger = new ThumbFlinger(clock, target);
+    }
+
+    @Test
+    public void deceleratesAndStops() {
+        flinger.fling(0, 100, 500, 5, 0, 1);
+        int frames = clock.runFrames(1000);
+
+        assertFalse(flinger.isFlinging());
+        assertTrue(frames > 10);
+        assertEquals(1, target.ended.size());
+        int prev = 100;
+        int prevDelta = target.values.get(0)[1] - prev;
+        for (int[] v : target.values) {
+            int delta = v[1] - prev;
+            assertTrue("moves forward", delta > 0);
+            //allow for the step rounding
+            assertTrue("decelerates", delta <= prevDelta + 1);
+            prev = v[1];
+            prevDelta = delta;
+        }
+        //distance covered by v0 / friction
+        assertEquals(100 + 500 / ThumbFlinger.DEFAULT_FRICTION, prev, 5);
+    }
+
+    @Test
+    public void emitsOnlyStepAlignedValues() {
+        target.max = 5000;
+        flinger.fling(0, 2010, -900, 5, 10, 25);
+        clock.runFrames(1000);
+
+        assertTrue(target.values.size() > 0);
+        for (int[] v : target.values) {
+            assertEquals(0, (v[1] - 10) % 25);
+        }
+    }
+
+    @Test
+    public void stopsAtConstraint() {
+        target.max = 150;
+        flinger.fling(0, 100, 2000, 5, 0, 1);
+        clock.runFrames(1000);
+
+        assertFalse(flinger.isFlinging());
+        assertEquals(150, target.values.get(target.values.size() - 1)[1]);
+        assertEquals(1, target.ended.size());
+    }
+
+    @Test
+    public void slowReleaseDoesNotFling() {
+        flinger.fling(0, 100, 3, 5, 0, 1);
+
+        assertFalse(flinger.isFlinging());
+        assertEquals(0, clock.posts);
+    }
+
+    @Test
+    public void multipleThumbsShareOneFrameCallback() {
+        flinger.fling(0, 100, 500, 5, 0, 1);
+        flinger.fling(1, 500, -500, 5, 0, 1);
+        flinger.fling(2, 800, 300, 5, 0, 1);
+        assertEquals(1, clock.posts);
+
+        int frames = clock.runFrames(1000);
+
+        //one post per frame for all thumbs, plus the initial one
+        assertEquals(frames, clock.posts);
+        assertEquals(3, target.ended.size());
+    }
+
+    @Test
+    public void cancelStopsWithoutNotifying() {
+        flinger.fling(0, 100, 500, 5, 0, 1);
+        clock.runFrames(3);
+        flinger.cancelAll();
+
+        assertFalse(flinger.isFlinging());
+        assertFalse(clock.frame());
+        assertEquals(0, target.ended.size());
+    }
+}
@@ -0,0 +1,96 @@
+package io.apptik.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ValueHistoryTest {
+
+    private final int[] out = new int[3];
+
+    @Test
+    public void undoAndRedoRestoreRecordedValues() {
+        ValueHistory history = new ValueHistory(10, 20);
+        history.reset(new int[]{0, 50, 100}, 3);
+        assertTrue(history.record(new int[]{10, 50, 100}, 3));
+        assertTrue(history.record(new int[]{10, 40, 90}, 3));
+
+        assertTrue(history.undo(out));
+        assertArrayEquals(new int[]{10, 50, 100}, out);
+        assertTrue(history.undo(out));
+        assertArrayEquals(new int[]{0, 50, 100}, out);
+        assertFalse(history.undo(out));
+
+        assertTrue(history.redo(out));
+        assertArrayEquals(new int[]{10, 50, 100}, out);
+        assertTrue(history.redo(out));
+        assertArrayEquals(new int[]{10, 40, 90}, out);
+        assertFalse(history.redo(out));
+    }
+
+    @Test
+    public void unchangedValuesAreNotRecorded() {
+        ValueHistory history = new ValueHistory(10, 20);
+        history.reset(new int[]{0, 50, 100}, 3);
+        assertFalse(history.record(new int[]{0, 50, 100}, 3));
+        assertFalse(history.canUndo());
+    }
+
+    @Test
+    public void recordingDropsRedo() {
+        ValueHistory history = new ValueHistory(10, 20);
+        history.reset(new int[]{0, 50, 100}, 3);
+        history.record(new int[]{1, 50, 100}, 3);
+        history.record(new int[]{2, 50, 100}, 3);
+        history.undo(out);
+        history.record(new int[]{1, 60, 100}, 3);
+        assertFalse(history.canRedo());
+
+        history.undo(out);
+        assertArrayEquals(new int[]{1, 50, 100}, out);
+        history.undo(out);
+        assertArrayEquals(new int[]{0, 50, 100}, out);
+    }
+
+    @Test
+    public void oldestEntriesAreDroppedWhenFull() {
+        ValueHistory history = new ValueHistory(3, 100);
+        history.reset(new int[]{0, 0, 0}, 3);
+        for (int i = 1; i <= 5; i++) {
+            history.record(new int[]{i, 0, 0}, 3);
+        }
+        int undos = 0;
+        while (history.undo(out)) undos++;
+        assertEquals(3, undos);
+        assertArrayEquals(new int[]{2, 0, 0}, out);
+    }
+
+    @Test
+    public void changesWrapAroundTheRing() {
+        //room for 5 changes, each entry takes 2
+        ValueHistory history = new ValueHistory(100, 5);
+        history.reset(new int[]{0, 0, 0}, 3);
+        for (int i = 1; i <= 20; i++) {
+            history.record(new int[]{i, -i, 0}, 3);
+        }
+        int undos = 0;
+        while (history.undo(out)) undos++;
+        assertEquals(2, undos);
+        assertArrayEquals(new int[]{18, -18, 0}, out);
+        while (history.redo(out)) ;
+        assertArrayEquals(new int[]{20, -20, 0}, out);
+    }
+
+    @Test
+    public void thumbCountChangeResets() {
+        ValueHistory history = new ValueHistory(10, 20);
+        history.reset(new int[]{0, 50, 100}, 3);
+        history.record(new int[]{5, 50, 100}, 3);
+        assertFalse(history.record(new int[]{5, 50}, 2));
+        assertEquals(2, history.size());
+        assertFalse(history.canUndo());
+    }
+}
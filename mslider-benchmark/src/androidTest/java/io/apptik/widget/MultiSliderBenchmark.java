@@ -0,0 +1,277 @@
+package io.apptik.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+/**
+ * Micro benchmarks of the value and constraint, touch, draw and size change paths at different
+ * numbers of thumbs.
+ * <p/>
+ * Run with {@code ./gradlew :mslider-benchmark:connectedCheck} on a device, the results are
+ * printed and written as json to the device and the build outputs.
+ */
+@RunWith(Parameterized.class)
+public class MultiSliderBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 96;
+    private static final int SCALE = 1000000;
+
+    @Parameterized.Parameters(name = "thumbs={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{2}, {10}, {100}, {1000}, {10000}});
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int thumbs;
+    private MultiSlider slider;
+
+    public MultiSliderBenchmark(int thumbs) {
+        this.thumbs = thumbs;
+    }
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        MultiSliderConfig config = new MultiSliderConfig.Builder(context)
+                .setThumbNumber(thumbs)
+                .setScale(0, SCALE)
+                .build();
+        slider = new MultiSlider(context, config);
+        slider.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        slider.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Constraint resolution and placement of a thumb between two neighbours
+     */
+    @Test
+    public void setValue() {
+        final MultiSlider.Thumb thumb = slider.getThumb(thumbs / 2);
+        final int low = slider.getThumb(thumbs / 2 - 1).getValue();
+        final int high = thumbs > 2 ? slider.getThumb(thumbs / 2 + 1).getValue() : SCALE;
+        final int a = low + (high - low) / 3;
+        final int b = low + (high - low) * 2 / 3;
+        final BenchmarkState state = benchmarkRule.getState();
+        boolean flip = false;
+        while (state.keepRunning()) {
+            thumb.setValue(flip ? a : b);
+            flip = !flip;
+        }
+    }
+
+    /**
+     * Values out of the thumb limits which are clamped to the neighbours
+     */
+    @Test
+    public void setValueClamped() {
+        final MultiSlider.Thumb thumb = slider.getThumb(thumbs / 2);
+        final BenchmarkState state = benchmarkRule.getState();
+        boolean flip = false;
+        while (state.keepRunning()) {
+            thumb.setValue(flip ? Integer.MIN_VALUE : Integer.MAX_VALUE);
+            flip = !flip;
+        }
+    }
+
+    @Test
+    public void repositionThumbs() {
+        final MultiSlider.Thumb first = slider.getThumb(0);
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            first.setValue(first.getValue() + 1);
+            state.resumeTiming();
+            slider.repositionThumbs();
+        }
+    }
+
+    /**
+     * Scale change which moves every thumb
+     */
+    @Test
+    public void setMaxRescale() {
+        final BenchmarkState state = benchmarkRule.getState();
+        boolean flip = false;
+        while (state.keepRunning()) {
+            slider.setMax(flip ? SCALE : SCALE / 2, true, true);
+            flip = !flip;
+        }
+    }
+
+    @Test
+    public void setMinRescale() {
+        final BenchmarkState state = benchmarkRule.getState();
+        boolean flip = false;
+        while (state.keepRunning()) {
+            slider.setMin(flip ? 0 : SCALE / 2, true, true);
+            flip = !flip;
+        }
+    }
+
+    /**
+     * Pixel to value mapping
+     */
+    @Test
+    public void getValue() {
+        final MultiSlider.Thumb thumb = slider.getThumb(thumbs / 2);
+        final BenchmarkState state = benchmarkRule.getState();
+        int x = 0;
+        int sum = 0;
+        while (state.keepRunning()) {
+            sum += slider.getValue(x, thumb);
+            x = (x + 7) % WIDTH;
+        }
+        consume(sum);
+    }
+
+    @Test
+    public void closestThumb() {
+        final BenchmarkState state = benchmarkRule.getState();
+        int x = 0;
+        int sum = 0;
+        while (state.keepRunning()) {
+            sum += slider.findClosestThumbIndex(x);
+            x = (x + 7) % WIDTH;
+        }
+        consume(sum);
+    }
+
+    /**
+     * The whole touch path of a drag: closest thumb on down, value mapping and constraints on
+     * every move
+     */
+    @Test
+    public void drag() {
+        final long downTime = SystemClock.uptimeMillis();
+        final int startX = slider.getPaddingLeft() + slider.getThumb(thumbs / 2).getThumb()
+                .getBounds().centerX();
+        final MotionEvent down = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_DOWN, startX, HEIGHT / 2, 0);
+        final MotionEvent move = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_MOVE, startX, HEIGHT / 2, 0);
+        final MotionEvent up = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_UP, startX, HEIGHT / 2, 0);
+        slider.onTouchEvent(down);
+        final BenchmarkState state = benchmarkRule.getState();
+        int step = 0;
+        while (state.keepRunning()) {
+            move.setLocation(startX + (step++ % 9) - 4, HEIGHT / 2);
+            slider.onTouchEvent(move);
+        }
+        slider.onTouchEvent(up);
+        down.recycle();
+        move.recycle();
+        up.recycle();
+    }
+
+    /**
+     * A frame of the slider drawn to a bitmap
+     */
+    @Test
+    public void draw() {
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT,
+                Bitmap.Config.ARGB_8888));
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            slider.draw(canvas);
+        }
+    }
+
+    /**
+     * Width change which places the track and every thumb again
+     */
+    @Test
+    public void resize() {
+        final BenchmarkState state = benchmarkRule.getState();
+        boolean flip = false;
+        while (state.keepRunning()) {
+            slider.layout(0, 0, flip ? WIDTH : WIDTH - 100, HEIGHT);
+            flip = !flip;
+        }
+    }
+
+    /**
+     * Rebinding the slider to models with the same number of thumbs, as in a scrolling list
+     */
+    @Test
+    public void bind() {
+        final ArrayModel a = new ArrayModel(thumbs, 0);
+        final ArrayModel b = new ArrayModel(thumbs, 1);
+        final BenchmarkState state = benchmarkRule.getState();
+        boolean flip = false;
+        while (state.keepRunning()) {
+            slider.unbind();
+            slider.bind(flip ? a : b);
+            flip = !flip;
+        }
+    }
+
+    private static void consume(int value) {
+        if (value == Integer.MIN_VALUE) {
+            throw new AssertionError();
+        }
+    }
+
+    private static class ArrayModel implements MultiSlider.Model {
+        private final int[] values;
+
+        ArrayModel(int thumbs, int shift) {
+            values = new int[thumbs];
+            int step = SCALE / thumbs;
+            for (int i = 0; i < thumbs; i++) {
+                values[i] = i * step + shift;
+            }
+        }
+
+        @Override
+        public int getThumbCount() {
+            return values.length;
+        }
+
+        @Override
+        public int getScaleMin() {
+            return 0;
+        }
+
+        @Override
+        public int getScaleMax() {
+            return SCALE;
+        }
+
+        @Override
+        public int getThumbValue(int thumbIndex) {
+            return values[thumbIndex];
+        }
+
+        @Override
+        public int getThumbMin(int thumbIndex) {
+            return 0;
+        }
+
+        @Override
+        public int getThumbMax(int thumbIndex) {
+            return SCALE;
+        }
+    }
+}
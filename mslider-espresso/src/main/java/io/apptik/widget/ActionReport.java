@@ -0,0 +1,98 @@
+package io.apptik.widget;
+
+import java.util.Arrays;
+
+/**
+ * Timing and value changes of a {@link MultiSliderActions} action, filled in when the action is
+ * performed. A report can be reused, it is cleared each time an action starts.
+ */
+public final class ActionReport {
+
+    private int eventCount;
+    private long durationNanos;
+    private long maxEventNanos;
+    private int valueChangeCount;
+    private int valuesChangeCount;
+    private int[] finalValues = new int[0];
+
+    void start() {
+        eventCount = 0;
+        durationNanos = 0;
+        maxEventNanos = 0;
+        valueChangeCount = 0;
+        valuesChangeCount = 0;
+        finalValues = new int[0];
+    }
+
+    void recordEvent(long nanos) {
+        eventCount++;
+        maxEventNanos = Math.max(maxEventNanos, nanos);
+    }
+
+    void finish(MultiSlider slider, long durationNanos, int valueChangeCount,
+                int valuesChangeCount) {
+        this.durationNanos = durationNanos;
+        this.valueChangeCount = valueChangeCount;
+        this.valuesChangeCount = valuesChangeCount;
+        finalValues = new int[slider.getThumbCount()];
+        for (int i = 0; i < finalValues.length; i++) {
+            finalValues[i] = slider.getThumb(i).getValue();
+        }
+    }
+
+    /**
+     * @return number of motion events injected, 0 for actions that do not use touch
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return wall time of the whole action in ns
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return the longest time it took to inject and handle a single motion event in ns
+     */
+    public long getMaxEventNanos() {
+        return maxEventNanos;
+    }
+
+    /**
+     * @return number of single thumb value changes, as reported to
+     * {@link MultiSlider.OnThumbValueChangeListener}s
+     */
+    public int getValueChangeCount() {
+        return valueChangeCount;
+    }
+
+    /**
+     * @return number of batched value changes, as reported to
+     * {@link MultiSlider.OnThumbValuesChangeListener}s
+     */
+    public int getValuesChangeCount() {
+        return valuesChangeCount;
+    }
+
+    /**
+     * @return values of all the thumbs after the action
+     */
+    public int[] getFinalValues() {
+        return finalValues.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "ActionReport{" +
+                "eventCount=" + eventCount +
+                ", durationNanos=" + durationNanos +
+                ", maxEventNanos=" + maxEventNanos +
+                ", valueChangeCount=" + valueChangeCount +
+                ", valuesChangeCount=" + valuesChangeCount +
+                ", finalValues=" + Arrays.toString(finalValues) +
+                '}';
+    }
+}
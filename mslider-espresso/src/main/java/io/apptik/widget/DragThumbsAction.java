@@ -0,0 +1,169 @@
+package io.apptik.widget;
+
+import android.os.SystemClock;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.hamcrest.Matcher;
+
+import java.util.Arrays;
+
+import androidx.test.espresso.InjectEventSecurityException;
+import androidx.test.espresso.PerformException;
+import androidx.test.espresso.UiController;
+import androidx.test.espresso.ViewAction;
+import androidx.test.espresso.matcher.ViewMatchers;
+import androidx.test.espresso.util.HumanReadables;
+
+/**
+ * Drags thumbs with real touch events, one pointer per thumb. The pointers go down on the thumb
+ * centers one after the other, move together at the given rate for the given time and go up in
+ * reverse order. Unlike {@link SetThumbValueAction} this goes through the whole touch handling
+ * of the slider.
+ */
+public class DragThumbsAction implements ViewAction {
+
+    //max number of pointers in a MotionEvent
+    private static final int MAX_POINTERS = 10;
+
+    private final int[] thumbIds;
+    private final float[] distances;
+    private final long durationMillis;
+    private final int eventsPerSecond;
+    private final ActionReport report;
+
+    /**
+     * @param thumbIds        the thumbs to drag
+     * @param distances       horizontal distance in px to drag each thumb
+     * @param durationMillis  time between the last pointer going down and the first going up
+     * @param eventsPerSecond rate of the move events, e.g. 60 or 120 as a touch screen reports
+     * @param report          filled with the timing and the value changes, can be null
+     */
+    public DragThumbsAction(int[] thumbIds, float[] distances, long durationMillis,
+                            int eventsPerSecond, ActionReport report) {
+        if (thumbIds.length == 0 || thumbIds.length > MAX_POINTERS
+                || thumbIds.length != distances.length) {
+            throw new IllegalArgumentException(String.format("%d thumbs, %d distances",
+                    thumbIds.length, distances.length));
+        }
+        if (durationMillis < 0 || eventsPerSecond < 1) {
+            throw new IllegalArgumentException(String.format("duration(%d) rate(%d)",
+                    durationMillis, eventsPerSecond));
+        }
+        this.thumbIds = thumbIds.clone();
+        this.distances = distances.clone();
+        this.durationMillis = durationMillis;
+        this.eventsPerSecond = eventsPerSecond;
+        this.report = report;
+    }
+
+    @Override
+    public Matcher<View> getConstraints() {
+        return ViewMatchers.isAssignableFrom(MultiSlider.class);
+    }
+
+    @Override
+    public String getDescription() {
+        return String.format("Drag thumbs %s by %s px in %d ms at %d events/s",
+                Arrays.toString(thumbIds), Arrays.toString(distances), durationMillis,
+                eventsPerSecond);
+    }
+
+    @Override
+    public void perform(UiController uiController, View view) {
+        MultiSlider slider = (MultiSlider) view;
+        final int pointers = thumbIds.length;
+        int[] location = new int[2];
+        slider.getLocationOnScreen(location);
+        float[] startX = new float[pointers];
+        for (int p = 0; p < pointers; p++) {
+            startX[p] = location[0] + slider.getThumb(thumbIds[p]).getThumb().getBounds()
+                    .centerX();
+        }
+        final float y = location[1] + slider.getHeight() / 2f;
+        final int moves = (int) Math.max(1, durationMillis * eventsPerSecond / 1000);
+        final long interval = 1000000000L / eventsPerSecond;
+
+        MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[pointers];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[pointers];
+        for (int p = 0; p < pointers; p++) {
+            properties[p] = new MotionEvent.PointerProperties();
+            properties[p].id = p;
+            properties[p].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[p] = new MotionEvent.PointerCoords();
+            coords[p].x = startX[p];
+            coords[p].y = y;
+            coords[p].pressure = 1f;
+            coords[p].size = 1f;
+        }
+
+        if (report != null) {
+            report.start();
+        }
+        ValueChangeCounter counter = ValueChangeCounter.attach(slider);
+        final long start = System.nanoTime();
+        try {
+            final long downTime = SystemClock.uptimeMillis();
+            inject(uiController, view, downTime, MotionEvent.ACTION_DOWN, 1, properties, coords);
+            for (int p = 1; p < pointers; p++) {
+                inject(uiController, view, downTime, MotionEvent.ACTION_POINTER_DOWN
+                        | (p << MotionEvent.ACTION_POINTER_INDEX_SHIFT), p + 1, properties, coords);
+            }
+            final long movesStart = System.nanoTime();
+            for (int i = 1; i <= moves; i++) {
+                //keep the rate, the main thread handles whatever comes meanwhile
+                long wait = (movesStart + i * interval - System.nanoTime()) / 1000000;
+                if (wait > 0) {
+                    uiController.loopMainThreadForAtLeast(wait);
+                }
+                for (int p = 0; p < pointers; p++) {
+                    coords[p].x = startX[p] + distances[p] * i / moves;
+                }
+                inject(uiController, view, downTime, MotionEvent.ACTION_MOVE, pointers,
+                        properties, coords);
+            }
+            for (int p = pointers - 1; p > 0; p--) {
+                inject(uiController, view, downTime, MotionEvent.ACTION_POINTER_UP
+                        | (p << MotionEvent.ACTION_POINTER_INDEX_SHIFT), p + 1, properties, coords);
+            }
+            inject(uiController, view, downTime, MotionEvent.ACTION_UP, 1, properties, coords);
+            uiController.loopMainThreadUntilIdle();
+        } finally {
+            counter.detach();
+        }
+        if (report != null) {
+            report.finish(slider, System.nanoTime() - start, counter.valueChanges,
+                    counter.valuesChanges);
+        }
+    }
+
+    private void inject(UiController uiController, View view, long downTime, int action,
+                        int pointerCount, MotionEvent.PointerProperties[] properties,
+                        MotionEvent.PointerCoords[] coords) {
+        MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action,
+                pointerCount, properties, coords, 0, 0, 1f, 1f, 0, 0,
+                InputDevice.SOURCE_TOUCHSCREEN, 0);
+        try {
+            long start = System.nanoTime();
+            if (!uiController.injectMotionEvent(event)) {
+                throw new PerformException.Builder()
+                        .withActionDescription(getDescription())
+                        .withViewDescription(HumanReadables.describe(view))
+                        .withCause(new RuntimeException("Motion event not injected: " + event))
+                        .build();
+            }
+            if (report != null) {
+                report.recordEvent(System.nanoTime() - start);
+            }
+        } catch (InjectEventSecurityException e) {
+            throw new PerformException.Builder()
+                    .withActionDescription(getDescription())
+                    .withViewDescription(HumanReadables.describe(view))
+                    .withCause(e)
+                    .build();
+        } finally {
+            event.recycle();
+        }
+    }
+}
@@ -18,4 +18,41 @@ public class MultiSliderActions {
     public static ViewAction setThumbValue(int thumbId, int value) {
         return ViewActions.actionWithAssertions(new SetThumbValueAction(thumbId, value));
     }
+
+    /**
+     * Drags a thumb with touch events at 60 events per second
+     *
+     * @param distance       horizontal distance in px
+     * @param durationMillis duration of the drag
+     */
+    public static ViewAction dragThumb(int thumbId, float distance, long durationMillis) {
+        return dragThumbs(new int[]{thumbId}, new float[]{distance}, durationMillis, 60, null);
+    }
+
+    /**
+     * Drags thumbs with touch events, one pointer per thumb, see {@link DragThumbsAction}
+     *
+     * @param report filled with the timing and the value changes, can be null
+     */
+    public static ViewAction dragThumbs(int[] thumbIds, float[] distances, long durationMillis,
+                                        int eventsPerSecond, ActionReport report) {
+        return ViewActions.actionWithAssertions(new DragThumbsAction(thumbIds, distances,
+                durationMillis, eventsPerSecond, report));
+    }
+
+    /**
+     * Sets the values of the first thumbs in a single batch edit
+     */
+    public static ViewAction setThumbValues(int... values) {
+        return setThumbValues(values, null);
+    }
+
+    /**
+     * Sets the values of the first thumbs in a single batch edit
+     *
+     * @param report filled with the timing and the value changes, can be null
+     */
+    public static ViewAction setThumbValues(int[] values, ActionReport report) {
+        return ViewActions.actionWithAssertions(new SetThumbValuesAction(values, report));
+    }
 }
@@ -0,0 +1,64 @@
+package io.apptik.widget;
+
+import android.view.View;
+
+import org.hamcrest.Matcher;
+
+import java.util.Arrays;
+
+import androidx.test.espresso.UiController;
+import androidx.test.espresso.ViewAction;
+import androidx.test.espresso.matcher.ViewMatchers;
+
+/**
+ * Sets the values of the first thumbs with {@link MultiSlider#setThumbValues(int...)}, so the
+ * values listeners get one change for all of them. The values are expected in thumb order.
+ */
+public class SetThumbValuesAction implements ViewAction {
+
+    private final int[] values;
+    private final ActionReport report;
+
+    /**
+     * @param values values of the thumbs starting from the first one
+     * @param report filled with the timing and the value changes, can be null
+     */
+    public SetThumbValuesAction(int[] values, ActionReport report) {
+        this.values = values.clone();
+        this.report = report;
+    }
+
+    @Override
+    public Matcher<View> getConstraints() {
+        return ViewMatchers.isAssignableFrom(MultiSlider.class);
+    }
+
+    @Override
+    public String getDescription() {
+        return String.format("Set values %s", Arrays.toString(values));
+    }
+
+    @Override
+    public void perform(UiController uiController, View view) {
+        MultiSlider slider = (MultiSlider) view;
+        if (values.length > slider.getThumbCount()) {
+            throw new IllegalArgumentException(String.format("%d values for %d thumbs",
+                    values.length, slider.getThumbCount()));
+        }
+        if (report != null) {
+            report.start();
+        }
+        ValueChangeCounter counter = ValueChangeCounter.attach(slider);
+        long start = System.nanoTime();
+        try {
+            slider.setThumbValues(values);
+        } finally {
+            counter.detach();
+        }
+        if (report != null) {
+            report.finish(slider, System.nanoTime() - start, counter.valueChanges,
+                    counter.valuesChanges);
+        }
+        uiController.loopMainThreadUntilIdle();
+    }
+}
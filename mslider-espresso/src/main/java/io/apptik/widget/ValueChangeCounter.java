@@ -0,0 +1,39 @@
+package io.apptik.widget;
+
+/**
+ * Counts the value changes reported by a slider while an action is performed
+ */
+final class ValueChangeCounter implements MultiSlider.OnThumbValueChangeListener,
+        MultiSlider.OnThumbValuesChangeListener {
+
+    private final MultiSlider slider;
+    int valueChanges;
+    int valuesChanges;
+
+    private ValueChangeCounter(MultiSlider slider) {
+        this.slider = slider;
+    }
+
+    static ValueChangeCounter attach(MultiSlider slider) {
+        ValueChangeCounter counter = new ValueChangeCounter(slider);
+        slider.addOnThumbValueChangeListener(counter);
+        slider.addOnThumbValuesChangeListener(counter);
+        return counter;
+    }
+
+    void detach() {
+        slider.removeOnThumbValueChangeListener(this);
+        slider.removeOnThumbValuesChangeListener(this);
+    }
+
+    @Override
+    public void onValueChanged(MultiSlider multiSlider, MultiSlider.Thumb thumb, int thumbIndex,
+                               int value) {
+        valueChanges++;
+    }
+
+    @Override
+    public void onValuesChanged(MultiSlider multiSlider, MultiSlider.ThumbValues values) {
+        valuesChanges++;
+    }
+}
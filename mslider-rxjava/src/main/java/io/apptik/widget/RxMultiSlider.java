@@ -0,0 +1,191 @@
+package io.apptik.widget;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import io.reactivex.BackpressureOverflowStrategy;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.FlowableOnSubscribe;
+import io.reactivex.functions.Cancellable;
+
+import static io.apptik.widget.Util.requireNonNull;
+
+/**
+ * Cold {@link Flowable}s of {@link MultiSlider} events.
+ * <p/>
+ * Every subscription adds its own listener to the slider and removes it when disposed.
+ * Subscribing must happen on the main thread, disposing can happen on any thread.
+ * <p/>
+ * Value streams are conflated: a slow subscriber gets the latest values when it requests more
+ * and never an unbounded buffer of intermediate ones. Tracking events are not conflated as every
+ * start has its stop, they are buffered up to {@link #TRACKING_BUFFER_SIZE} and the oldest ones
+ * are dropped beyond it.
+ * <p/>
+ * Kotlin coroutine users can turn them into a {@code Flow} with {@code asFlow()} from
+ * kotlinx-coroutines-reactive.
+ */
+public final class RxMultiSlider {
+
+    /**
+     * Number of tracking events kept for a subscriber which does not request them
+     */
+    public static final int TRACKING_BUFFER_SIZE = 32;
+
+    private RxMultiSlider() {}
+
+    /**
+     * Emits a copy of all the thumb values on subscription and after each batch of changes,
+     * e.g. once per touch event.
+     *
+     * @param view the slider to observe
+     * @return cold stream of the thumb values, conflated to the latest
+     */
+    public static Flowable<int[]> values(final MultiSlider view) {
+        requireNonNull(view);
+        return Flowable.create(new FlowableOnSubscribe<int[]>() {
+            @Override
+            public void subscribe(final FlowableEmitter<int[]> emitter) {
+                if (!checkMainThread(emitter)) return;
+                final MultiSlider.OnThumbValuesChangeListener listener =
+                        new MultiSlider.OnThumbValuesChangeListener() {
+                            @Override
+                            public void onValuesChanged(MultiSlider multiSlider,
+                                                        MultiSlider.ThumbValues values) {
+                                int[] res = new int[values.size()];
+                                values.copyTo(res);
+                                emitter.onNext(res);
+                            }
+                        };
+                view.addOnThumbValuesChangeListener(listener);
+                emitter.setCancellable(new MainThreadCancellable() {
+                    @Override
+                    void onCancel() {
+                        view.removeOnThumbValuesChangeListener(listener);
+                    }
+                });
+                int[] res = new int[view.getThumbCount()];
+                for (int i = 0; i < res.length; i++) {
+                    res[i] = view.getThumb(i).getValue();
+                }
+                emitter.onNext(res);
+            }
+        }, BackpressureStrategy.LATEST);
+    }
+
+    /**
+     * Emits the value of a single thumb on subscription and whenever it changes.
+     *
+     * @param view       the slider to observe
+     * @param thumbIndex the index of the thumb
+     * @return cold stream of the thumb value, conflated to the latest
+     */
+    public static Flowable<Integer> thumbValues(final MultiSlider view, final int thumbIndex) {
+        requireNonNull(view);
+        return Flowable.create(new FlowableOnSubscribe<Integer>() {
+            @Override
+            public void subscribe(final FlowableEmitter<Integer> emitter) {
+                if (!checkMainThread(emitter)) return;
+                if (thumbIndex < 0 || thumbIndex >= view.getThumbCount()) {
+                    emitter.onError(new IndexOutOfBoundsException(String.format(
+                            "thumbIndex(%d) thumbs(%d)", thumbIndex, view.getThumbCount())));
+                    return;
+                }
+                final MultiSlider.OnThumbValuesChangeListener listener =
+                        new MultiSlider.OnThumbValuesChangeListener() {
+                            @Override
+                            public void onValuesChanged(MultiSlider multiSlider,
+                                                        MultiSlider.ThumbValues values) {
+                                if (values.isChanged(thumbIndex)) {
+                                    emitter.onNext(values.getValue(thumbIndex));
+                                }
+                            }
+                        };
+                view.addOnThumbValuesChangeListener(listener);
+                emitter.setCancellable(new MainThreadCancellable() {
+                    @Override
+                    void onCancel() {
+                        view.removeOnThumbValuesChangeListener(listener);
+                    }
+                });
+                emitter.onNext(view.getThumb(thumbIndex).getValue());
+            }
+        }, BackpressureStrategy.LATEST);
+    }
+
+    /**
+     * Emits an event when the user starts and stops moving a thumb.
+     * <p/>
+     * Up to {@link #TRACKING_BUFFER_SIZE} events are kept for a slow subscriber, older ones are
+     * dropped, so the last event received still tells whether a thumb is being moved.
+     *
+     * @param view the slider to observe
+     * @return cold stream of tracking events, buffered to the latest ones
+     */
+    public static Flowable<TrackingEvent> trackingEvents(final MultiSlider view) {
+        requireNonNull(view);
+        return Flowable.create(new FlowableOnSubscribe<TrackingEvent>() {
+            @Override
+            public void subscribe(final FlowableEmitter<TrackingEvent> emitter) {
+                if (!checkMainThread(emitter)) return;
+                final MultiSlider.OnTrackingChangeListener listener =
+                        new MultiSlider.OnTrackingChangeListener() {
+                            @Override
+                            public void onStartTrackingTouch(MultiSlider multiSlider,
+                                                             MultiSlider.Thumb thumb, int value) {
+                                emitter.onNext(new TrackingEvent(multiSlider, thumb,
+                                        TrackingEvent.Type.START, value));
+                            }
+
+                            @Override
+                            public void onStopTrackingTouch(MultiSlider multiSlider,
+                                                            MultiSlider.Thumb thumb, int value) {
+                                emitter.onNext(new TrackingEvent(multiSlider, thumb,
+                                        TrackingEvent.Type.STOP, value));
+                            }
+                        };
+                view.addOnTrackingChangeListener(listener);
+                emitter.setCancellable(new MainThreadCancellable() {
+                    @Override
+                    void onCancel() {
+                        view.removeOnTrackingChangeListener(listener);
+                    }
+                });
+            }
+        }, BackpressureStrategy.MISSING).onBackpressureBuffer(TRACKING_BUFFER_SIZE, null,
+                BackpressureOverflowStrategy.DROP_OLDEST);
+    }
+
+    private static boolean checkMainThread(FlowableEmitter<?> emitter) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            emitter.onError(new IllegalStateException(
+                    "Expected to be called on the main thread but was "
+                            + Thread.currentThread().getName()));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Runs the cancellation on the main thread, right away if already there.
+     */
+    abstract static class MainThreadCancellable implements Cancellable, Runnable {
+
+        abstract void onCancel();
+
+        @Override
+        public final void cancel() {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                onCancel();
+            } else {
+                new Handler(Looper.getMainLooper()).post(this);
+            }
+        }
+
+        @Override
+        public final void run() {
+            onCancel();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.apptik.widget;
+
+/**
+ * Start or stop of a thumb move emitted by {@link RxMultiSlider#trackingEvents(MultiSlider)}
+ */
+public final class TrackingEvent {
+
+    public enum Type {
+        START, STOP
+    }
+
+    private final MultiSlider view;
+    private final MultiSlider.Thumb thumb;
+    private final Type type;
+    private final int value;
+
+    TrackingEvent(MultiSlider view, MultiSlider.Thumb thumb, Type type, int value) {
+        this.view = view;
+        this.thumb = thumb;
+        this.type = type;
+        this.value = value;
+    }
+
+    public MultiSlider getView() {
+        return view;
+    }
+
+    public MultiSlider.Thumb getThumb() {
+        return thumb;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the value of the thumb when the move started or stopped
+     */
+    public int getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "TrackingEvent{" +
+                "type=" + type +
+                ", value=" + value +
+                '}';
+    }
+}
@@ -0,0 +1,173 @@
+package io.apptik.widget;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RxMultiSliderTest {
+
+    private static final int EMISSIONS = 100000;
+
+    private MultiSlider slider;
+
+    @Before
+    public void setUp() {
+        slider = new MultiSlider(RuntimeEnvironment.application);
+        slider.setMax(EMISSIONS * 2, true, true);
+        slider.setMin(0, true, true);
+        slider.setNumberOfThumbs(2);
+        slider.getThumb(0).setValue(0);
+        slider.getThumb(1).setValue(EMISSIONS * 2);
+    }
+
+    @Test
+    public void valuesAreConflatedForSlowSubscriber() {
+        TestSubscriber<int[]> subscriber = RxMultiSlider.values(slider).test(1);
+        subscriber.assertValueCount(1);
+
+        for (int i = 1; i <= EMISSIONS; i++) {
+            slider.getThumb(0).setValue(i);
+        }
+        //nothing requested, nothing delivered
+        subscriber.assertValueCount(1);
+
+        subscriber.request(Long.MAX_VALUE);
+        //only the latest of the pending values is kept
+        subscriber.assertValueCount(2);
+        assertArrayEquals(new int[]{EMISSIONS, EMISSIONS * 2}, subscriber.values().get(1));
+        subscriber.dispose();
+    }
+
+    @Test
+    public void valuesAreAllDeliveredToFastSubscriber() {
+        TestSubscriber<int[]> subscriber = RxMultiSlider.values(slider).test();
+        for (int i = 1; i <= 100; i++) {
+            slider.getThumb(0).setValue(i);
+        }
+        subscriber.assertValueCount(101);
+        subscriber.dispose();
+    }
+
+    @Test
+    public void thumbValuesEmitOnlyTheObservedThumb() {
+        TestSubscriber<Integer> subscriber = RxMultiSlider.thumbValues(slider, 1).test();
+        slider.getThumb(0).setValue(10);
+        slider.getThumb(1).setValue(20);
+        slider.getThumb(0).setValue(11);
+        subscriber.assertValues(EMISSIONS * 2, 20);
+        subscriber.dispose();
+    }
+
+    @Test
+    public void thumbValuesAreConflatedForSlowSubscriber() {
+        TestSubscriber<Integer> subscriber = RxMultiSlider.thumbValues(slider, 0).test(0);
+        for (int i = 1; i <= EMISSIONS; i++) {
+            slider.getThumb(0).setValue(i);
+        }
+        subscriber.assertNoValues();
+        subscriber.request(1);
+        subscriber.assertValues(EMISSIONS);
+        subscriber.dispose();
+    }
+
+    @Test
+    public void batchEditEmitsOnce() {
+        TestSubscriber<int[]> subscriber = RxMultiSlider.values(slider).test();
+        slider.beginBatchEdit();
+        slider.getThumb(0).setValue(5);
+        slider.getThumb(1).setValue(50);
+        slider.endBatchEdit();
+        subscriber.assertValueCount(2);
+        assertArrayEquals(new int[]{5, 50}, subscriber.values().get(1));
+        subscriber.dispose();
+    }
+
+    @Test
+    public void disposeDetachesFromSlider() {
+        final int[] calls = new int[1];
+        MultiSlider.OnThumbValuesChangeListener counter =
+                new MultiSlider.OnThumbValuesChangeListener() {
+                    @Override
+                    public void onValuesChanged(MultiSlider multiSlider,
+                                                MultiSlider.ThumbValues values) {
+                        calls[0]++;
+                    }
+                };
+        TestSubscriber<int[]> subscriber = RxMultiSlider.values(slider).test();
+        subscriber.dispose();
+        slider.getThumb(0).setValue(1);
+        subscriber.assertValueCount(1);
+
+        //the subscription's listener is gone, the only one left is the counter
+        slider.addOnThumbValuesChangeListener(counter);
+        slider.getThumb(0).setValue(2);
+        assertEquals(1, calls[0]);
+        slider.removeOnThumbValuesChangeListener(counter);
+    }
+
+    @Test
+    public void invalidThumbIndexFails() {
+        RxMultiSlider.thumbValues(slider, 2).test()
+                .assertError(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void trackingEventsAreNotConflated() {
+        slider.layout(0, 0, 1000, 100);
+        TestSubscriber<TrackingEvent> subscriber = RxMultiSlider.trackingEvents(slider).test(0);
+        simulateTracking();
+        simulateTracking();
+        subscriber.request(Long.MAX_VALUE);
+        List<TrackingEvent> events = subscriber.values();
+        assertEquals(4, events.size());
+        assertEquals(TrackingEvent.Type.START, events.get(0).getType());
+        assertEquals(TrackingEvent.Type.STOP, events.get(1).getType());
+        assertEquals(TrackingEvent.Type.START, events.get(2).getType());
+        assertEquals(TrackingEvent.Type.STOP, events.get(3).getType());
+        subscriber.dispose();
+    }
+
+    @Test
+    public void trackingEventsAreBoundedForSlowSubscriber() {
+        slider.layout(0, 0, 1000, 100);
+        TestSubscriber<TrackingEvent> subscriber = RxMultiSlider.trackingEvents(slider).test(0);
+        for (int i = 0; i < RxMultiSlider.TRACKING_BUFFER_SIZE; i++) {
+            simulateTracking();
+        }
+        subscriber.request(Long.MAX_VALUE);
+        //only the latest events are kept, the last one is the last stop
+        List<TrackingEvent> events = subscriber.values();
+        assertEquals(RxMultiSlider.TRACKING_BUFFER_SIZE, events.size());
+        assertEquals(TrackingEvent.Type.STOP, events.get(events.size() - 1).getType());
+        subscriber.assertNoErrors();
+        subscriber.dispose();
+    }
+
+    private void simulateTracking() {
+        long now = SystemClock.uptimeMillis();
+        int x = slider.getThumb(0).getThumb().getBounds().centerX();
+        MotionEvent down = MotionEvent.obtain(now, now,
+                MotionEvent.ACTION_DOWN, x, 50, 0);
+        MotionEvent up = MotionEvent.obtain(now, now + 10,
+                MotionEvent.ACTION_UP, x, 50, 0);
+        slider.onTouchEvent(down);
+        slider.onTouchEvent(up);
+        down.recycle();
+        up.recycle();
+    }
+}
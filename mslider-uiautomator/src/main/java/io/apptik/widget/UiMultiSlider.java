@@ -10,9 +10,32 @@ import androidx.test.uiautomator.UiScrollable;
 import androidx.test.uiautomator.UiSelector;
 
 import static io.apptik.widget.MultiSlider.VirtualTreeProvider.ACT_SET_PROGRESS;
+import static io.apptik.widget.MultiSlider.VirtualTreeProvider.ARG_VALUE;
+import static io.apptik.widget.MultiSlider.VirtualTreeProvider.ARG_VALUES;
 
+/**
+ * Drives a {@link MultiSlider} through its accessibility nodes.
+ * <p/>
+ * The selector can match either a thumb node, which the methods without a thumb index act on,
+ * or the slider node. The thumb indexed methods act on the thumb nodes of the slider, whichever
+ * node was selected.
+ * <p/>
+ * The nodes are looked up once and reused by the following calls. A node which can no longer be
+ * refreshed, e.g. because the slider was recreated, is looked up again before acting on it.
+ * {@link #clearCache()} forces a new lookup.
+ */
 public class UiMultiSlider extends UiScrollable {
 
+    private static final String THUMB_CLASS = MultiSlider.Thumb.class.getName();
+    //act on the selected node
+    private static final int SELECTED = -1;
+    //act on the slider node
+    private static final int SLIDER = -2;
+
+    private AccessibilityNodeInfo selectedNode;
+    private AccessibilityNodeInfo sliderNode;
+    private AccessibilityNodeInfo[] thumbNodes;
+
     /**
      * Constructor.
      *
@@ -30,31 +53,144 @@ public class UiMultiSlider extends UiScrollable {
     }
 
     public boolean moveThumbForward() throws UiObjectNotFoundException {
-        AccessibilityNodeInfo ani =
-                findAccessibilityNodeInfo(Configurator.getInstance().getWaitForSelectorTimeout());
-        if (ani == null) {
-            throw new UiObjectNotFoundException(getSelector().toString());
-        }
-        return ani.performAction(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD);
+        return perform(SELECTED, AccessibilityNodeInfo.ACTION_SCROLL_FORWARD, null);
     }
 
     public boolean moveThumbBackward() throws UiObjectNotFoundException {
-        AccessibilityNodeInfo ani =
-                findAccessibilityNodeInfo(Configurator.getInstance().getWaitForSelectorTimeout());
-        if (ani == null) {
-            throw new UiObjectNotFoundException(getSelector().toString());
-        }
-        return ani.performAction(AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD);
+        return perform(SELECTED, AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD, null);
     }
 
     public boolean setThumbValue(int value) throws UiObjectNotFoundException {
-        AccessibilityNodeInfo ani =
-                findAccessibilityNodeInfo(Configurator.getInstance().getWaitForSelectorTimeout());
-        if (ani == null) {
-            throw new UiObjectNotFoundException(getSelector().toString());
-        }
         Bundle args = new Bundle();
-        args.putInt("value", value);
-        return ani.performAction(ACT_SET_PROGRESS, args);
+        args.putInt(ARG_VALUE, value);
+        return perform(SELECTED, ACT_SET_PROGRESS, args);
+    }
+
+    public boolean moveThumbForward(int thumbIndex) throws UiObjectNotFoundException {
+        return perform(checkThumbIndex(thumbIndex), AccessibilityNodeInfo.ACTION_SCROLL_FORWARD,
+                null);
+    }
+
+    public boolean moveThumbBackward(int thumbIndex) throws UiObjectNotFoundException {
+        return perform(checkThumbIndex(thumbIndex),
+                AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD, null);
+    }
+
+    public boolean setThumbValue(int thumbIndex, int value) throws UiObjectNotFoundException {
+        Bundle args = new Bundle();
+        args.putInt(ARG_VALUE, value);
+        return perform(checkThumbIndex(thumbIndex), ACT_SET_PROGRESS, args);
+    }
+
+    /**
+     * Sets the values of the first thumbs with a single action on the slider node, the values
+     * are applied in one batch by the slider.
+     *
+     * @param values values in thumb order
+     */
+    public boolean setThumbValues(int... values) throws UiObjectNotFoundException {
+        Bundle args = new Bundle();
+        args.putIntArray(ARG_VALUES, values);
+        return perform(SLIDER, ACT_SET_PROGRESS, args);
+    }
+
+    /**
+     * @return the current number of thumbs of the slider
+     */
+    public int getThumbCount() throws UiObjectNotFoundException {
+        AccessibilityNodeInfo slider = getSliderNode();
+        if (!slider.refresh()) {
+            clearCache();
+            slider = getSliderNode();
+        }
+        return slider.getChildCount();
+    }
+
+    /**
+     * Drops the nodes kept from the previous calls
+     */
+    public void clearCache() {
+        selectedNode = null;
+        sliderNode = null;
+        thumbNodes = null;
+    }
+
+    private static int checkThumbIndex(int thumbIndex) {
+        if (thumbIndex < 0) {
+            throw new IndexOutOfBoundsException("thumbIndex: " + thumbIndex);
+        }
+        return thumbIndex;
+    }
+
+    private boolean perform(int target, int action, Bundle args)
+            throws UiObjectNotFoundException {
+        AccessibilityNodeInfo node = getNode(target);
+        if (!node.refresh()) {
+            //the cached node is gone, look it up once more. A false from the action itself is
+            //a valid answer, e.g. a scroll at the limit, and is not retried
+            clearCache();
+            node = getNode(target);
+        }
+        return node.performAction(action, args);
+    }
+
+    private AccessibilityNodeInfo getNode(int target) throws UiObjectNotFoundException {
+        if (target == SELECTED) {
+            return getSelectedNode();
+        } else if (target == SLIDER) {
+            return getSliderNode();
+        }
+        return getThumbNode(target);
+    }
+
+    private AccessibilityNodeInfo getSelectedNode() throws UiObjectNotFoundException {
+        if (selectedNode == null) {
+            selectedNode = findAccessibilityNodeInfo(
+                    Configurator.getInstance().getWaitForSelectorTimeout());
+            if (selectedNode == null) {
+                throw new UiObjectNotFoundException(getSelector().toString());
+            }
+        }
+        return selectedNode;
+    }
+
+    private AccessibilityNodeInfo getSliderNode() throws UiObjectNotFoundException {
+        if (sliderNode == null) {
+            AccessibilityNodeInfo node = getSelectedNode();
+            sliderNode = THUMB_CLASS.equals(String.valueOf(node.getClassName()))
+                    ? node.getParent() : node;
+            if (sliderNode == null) {
+                throw new UiObjectNotFoundException("Slider of " + getSelector());
+            }
+        }
+        return sliderNode;
+    }
+
+    private AccessibilityNodeInfo getThumbNode(int thumbIndex)
+            throws UiObjectNotFoundException {
+        AccessibilityNodeInfo slider = getSliderNode();
+        if (thumbNodes != null && thumbIndex >= thumbNodes.length) {
+            //thumbs may have been added since
+            if (!slider.refresh()) {
+                clearCache();
+                slider = getSliderNode();
+            }
+            thumbNodes = null;
+        }
+        if (thumbNodes == null) {
+            thumbNodes = new AccessibilityNodeInfo[slider.getChildCount()];
+        }
+        if (thumbIndex >= thumbNodes.length) {
+            throw new IndexOutOfBoundsException(String.format("thumbIndex(%d) >= thumbs(%d)",
+                    thumbIndex, thumbNodes.length));
+        }
+        if (thumbNodes[thumbIndex] == null) {
+            thumbNodes[thumbIndex] = slider.getChild(thumbIndex);
+            if (thumbNodes[thumbIndex] == null) {
+                throw new UiObjectNotFoundException("Thumb " + thumbIndex + " of "
+                        + getSelector());
+            }
+        }
+        return thumbNodes[thumbIndex];
     }
 }